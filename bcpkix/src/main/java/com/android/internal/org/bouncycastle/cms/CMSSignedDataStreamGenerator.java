@@ -7,6 +7,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.android.internal.org.bouncycastle.asn1.ASN1EncodableVector;
 import com.android.internal.org.bouncycastle.asn1.ASN1Integer;
@@ -20,6 +21,7 @@ import com.android.internal.org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
 import com.android.internal.org.bouncycastle.asn1.cms.SignerInfo;
 import com.android.internal.org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import com.android.internal.org.bouncycastle.operator.DigestAlgorithmIdentifierFinder;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * General class for generating a pkcs7-signature message stream.
@@ -48,11 +50,19 @@ import com.android.internal.org.bouncycastle.operator.DigestAlgorithmIdentifierF
  *      
  *      sigOut.close();
  * </pre>
+ * <p>
+ * If an executor is set and there is more than one SignerInfoGenerator, the content is passed to the
+ * signers in large batches with each signer's digest calculation running on its own task, and the
+ * signatures are calculated concurrently on close. The stream must not be written to or closed from one of
+ * the executor's own threads, as with a bounded pool the writer could then wait forever for tasks which have
+ * no thread to run on.
+ * </p>
  */
 public class CMSSignedDataStreamGenerator
     extends CMSSignedGenerator
 {
     private int  _bufferSize;
+    private Executor executor;
 
     /**
      * base constructor
@@ -80,6 +90,20 @@ public class CMSSignedDataStreamGenerator
         _bufferSize = bufferSize;
     }
 
+    /**
+     * Set an executor to run the per-signer digest and signature calculations on when there is more than
+     * one SignerInfoGenerator. Each batch of content, and each signature at close, is a separate task.
+     * Anything thrown by a task is rethrown on the thread writing to, or closing, the signed data stream,
+     * which must not be one of the executor's own threads.
+     *
+     * @param executor the executor to use, null to do all calculations on the writing thread.
+     */
+    public void setExecutor(
+        Executor executor)
+    {
+        this.executor = executor;
+    }
+
     /**
      * generate a signed object that for a CMS Signed Data
      * object using the given provider.
@@ -237,7 +261,15 @@ public class CMSSignedDataStreamGenerator
         OutputStream contentStream = CMSUtils.getSafeTeeOutputStream(dataOutputStream, encapStream);
 
         // Let all the signers see the data as it is written
-        OutputStream sigStream = CMSUtils.attachSignersToOutputStream(signerGens, contentStream);
+        OutputStream sigStream;
+        if (executor != null && signerGens.size() > 1)
+        {
+            sigStream = CMSUtils.getSafeTeeOutputStream(contentStream, new ConcurrentSignersOutputStream(signerGens, executor));
+        }
+        else
+        {
+            sigStream = CMSUtils.attachSignersToOutputStream(signerGens, contentStream);
+        }
 
         return new CmsSignedDataOutputStream(sigStream, eContentType, sGen, sigGen, eiGen);
     }
@@ -474,22 +506,38 @@ public class CMSSignedDataStreamGenerator
             // add the generated SignerInfo objects
             //
 
-            for (Iterator it = signerGens.iterator(); it.hasNext();)
+            if (executor != null && signerGens.size() > 1)
             {
-                SignerInfoGenerator sigGen = (SignerInfoGenerator)it.next();
+                SignerInfo[] generated = generateConcurrently(_contentOID);
 
-
-                try
+                for (int i = 0; i != generated.length; i++)
                 {
-                    signerInfos.add(sigGen.generate(_contentOID));
+                    SignerInfoGenerator sigGen = (SignerInfoGenerator)signerGens.get(i);
 
-                    byte[] calculatedDigest = sigGen.getCalculatedDigest();
+                    signerInfos.add(generated[i]);
 
-                    digests.put(sigGen.getDigestAlgorithm().getAlgorithm().getId(), calculatedDigest);
+                    digests.put(sigGen.getDigestAlgorithm().getAlgorithm().getId(), sigGen.getCalculatedDigest());
                 }
-                catch (CMSException e)
+            }
+            else
+            {
+                for (Iterator it = signerGens.iterator(); it.hasNext();)
                 {
-                    throw new CMSStreamException("exception generating signers: " + e.getMessage(), e);
+                    SignerInfoGenerator sigGen = (SignerInfoGenerator)it.next();
+
+
+                    try
+                    {
+                        signerInfos.add(sigGen.generate(_contentOID));
+
+                        byte[] calculatedDigest = sigGen.getCalculatedDigest();
+
+                        digests.put(sigGen.getDigestAlgorithm().getAlgorithm().getId(), calculatedDigest);
+                    }
+                    catch (CMSException e)
+                    {
+                        throw new CMSStreamException("exception generating signers: " + e.getMessage(), e);
+                    }
                 }
             }
 
@@ -530,5 +578,37 @@ public class CMSSignedDataStreamGenerator
             _sigGen.close();
             _sGen.close();
         }
+
+        private SignerInfo[] generateConcurrently(final ASN1ObjectIdentifier contentOID)
+            throws IOException
+        {
+            final SignerInfo[] generated = new SignerInfo[signerGens.size()];
+            TaskGroup tasks = new TaskGroup(executor);
+
+            for (int i = 0; i != generated.length; i++)
+            {
+                final int index = i;
+                final SignerInfoGenerator sigGen = (SignerInfoGenerator)signerGens.get(i);
+
+                tasks.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            generated[index] = sigGen.generate(contentOID);
+                        }
+                        catch (CMSException e)
+                        {
+                            throw new CMSRuntimeException(e.getMessage(), e);
+                        }
+                    }
+                });
+            }
+
+            ConcurrentSignersOutputStream.await(tasks, "exception generating signers: ");
+
+            return generated;
+        }
     }
 }
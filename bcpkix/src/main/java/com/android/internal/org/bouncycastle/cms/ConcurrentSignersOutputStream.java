@@ -0,0 +1,145 @@
+package com.android.internal.org.bouncycastle.cms;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import com.android.internal.org.bouncycastle.util.TaskGroup;
+
+/**
+ * Output stream which passes data to the calculating streams of a list of SignerInfoGenerators concurrently.
+ * Data is collected into a batch buffer and each full batch is written to every signer on its own task. Two
+ * buffers are used, so the writer fills the next batch while the signers work through the previous one.
+ * <p>
+ * Anything thrown by a signer's task is rethrown on the writing thread, an IOException wrapped in a
+ * CMSStreamException. The writing thread must not be one of the executor's own threads, as with a bounded
+ * pool it could then wait forever for tasks which have no thread to run on.
+ * </p>
+ */
+class ConcurrentSignersOutputStream
+    extends OutputStream
+{
+    static final int BATCH_SIZE = 32 * 1024;
+
+    private final TaskGroup tasks;
+    private final OutputStream[] signerStreams;
+
+    private byte[] batch = new byte[BATCH_SIZE];
+    private byte[] spare = new byte[BATCH_SIZE];
+    private int batchLen = 0;
+
+    ConcurrentSignersOutputStream(List signerGens, Executor executor)
+    {
+        this.tasks = new TaskGroup(executor);
+        this.signerStreams = new OutputStream[signerGens.size()];
+
+        for (int i = 0; i != signerStreams.length; i++)
+        {
+            signerStreams[i] = CMSUtils.getSafeOutputStream(((SignerInfoGenerator)signerGens.get(i)).getCalculatingOutputStream());
+        }
+    }
+
+    public void write(int b)
+        throws IOException
+    {
+        if (batchLen == batch.length)
+        {
+            dispatch();
+        }
+
+        batch[batchLen++] = (byte)b;
+    }
+
+    public void write(byte[] bytes, int off, int len)
+        throws IOException
+    {
+        while (len > 0)
+        {
+            if (batchLen == batch.length)
+            {
+                dispatch();
+            }
+
+            int count = Math.min(len, batch.length - batchLen);
+            System.arraycopy(bytes, off, batch, batchLen, count);
+            batchLen += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    public void close()
+        throws IOException
+    {
+        dispatch();
+        await(tasks, "exception calculating signer digests: ");
+
+        for (int i = 0; i != signerStreams.length; i++)
+        {
+            signerStreams[i].close();
+        }
+    }
+
+    private void dispatch()
+        throws IOException
+    {
+        // the spare buffer is only free once the signers have finished with the previous batch
+        await(tasks, "exception calculating signer digests: ");
+
+        if (batchLen == 0)
+        {
+            return;
+        }
+
+        final byte[] data = batch;
+        final int dataLen = batchLen;
+
+        for (int i = 0; i != signerStreams.length; i++)
+        {
+            final OutputStream signerStream = signerStreams[i];
+
+            tasks.execute(new Runnable()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        signerStream.write(data, 0, dataLen);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new CMSRuntimeException(e.getMessage(), e);
+                    }
+                }
+            });
+        }
+
+        batch = spare;
+        spare = data;
+        batchLen = 0;
+    }
+
+    /**
+     * Wait for the tasks of a group to finish. Errors and runtime exceptions thrown by a task are rethrown as
+     * they are, a checked exception a task has wrapped in a CMSRuntimeException is rethrown wrapped in a
+     * CMSStreamException.
+     */
+    static void await(TaskGroup tasks, String message)
+        throws CMSStreamException
+    {
+        try
+        {
+            tasks.await();
+        }
+        catch (CMSRuntimeException e)
+        {
+            Exception cause = e.getUnderlyingException();
+            if (cause == null)
+            {
+                throw e;
+            }
+            throw new CMSStreamException(message + cause.getMessage(), cause);
+        }
+    }
+}
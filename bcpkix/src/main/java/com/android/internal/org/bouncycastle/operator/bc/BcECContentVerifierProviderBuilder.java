@@ -10,6 +10,7 @@ import com.android.internal.org.bouncycastle.crypto.params.AsymmetricKeyParamete
 import com.android.internal.org.bouncycastle.crypto.signers.DSADigestSigner;
 import com.android.internal.org.bouncycastle.crypto.signers.ECDSASigner;
 import com.android.internal.org.bouncycastle.crypto.util.PublicKeyFactory;
+import com.android.internal.org.bouncycastle.crypto.util.VerifierKeyCache;
 import com.android.internal.org.bouncycastle.operator.DigestAlgorithmIdentifierFinder;
 import com.android.internal.org.bouncycastle.operator.OperatorCreationException;
 
@@ -17,12 +18,27 @@ public class BcECContentVerifierProviderBuilder
     extends BcContentVerifierProviderBuilder
 {
     private DigestAlgorithmIdentifierFinder digestAlgorithmFinder;
+    private VerifierKeyCache keyCache = null;
 
     public BcECContentVerifierProviderBuilder(DigestAlgorithmIdentifierFinder digestAlgorithmFinder)
     {
         this.digestAlgorithmFinder = digestAlgorithmFinder;
     }
 
+    /**
+     * Set the cache used to look up the public keys of certificates passed to build(). By default public
+     * keys are not cached. A cache can be shared between builders.
+     *
+     * @param keyCache the cache to use, null if public keys should not be cached.
+     * @return the current builder instance.
+     */
+    public BcECContentVerifierProviderBuilder setKeyCache(VerifierKeyCache keyCache)
+    {
+        this.keyCache = keyCache;
+
+        return this;
+    }
+
     protected Signer createSigner(AlgorithmIdentifier sigAlgId)
         throws OperatorCreationException
     {
@@ -35,6 +51,11 @@ public class BcECContentVerifierProviderBuilder
     protected AsymmetricKeyParameter extractKeyParameters(SubjectPublicKeyInfo publicKeyInfo)
         throws IOException
     {
+        if (keyCache != null)
+        {
+            return keyCache.getKey(publicKeyInfo);
+        }
+
         return PublicKeyFactory.createKey(publicKeyInfo);
     }
 }
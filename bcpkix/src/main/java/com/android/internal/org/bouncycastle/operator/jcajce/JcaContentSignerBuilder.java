@@ -58,6 +58,9 @@ public class JcaContentSignerBuilder
 
     private OperatorHelper helper = new OperatorHelper(new DefaultJcaJceHelper());
     private SecureRandom random;
+    private JcaOperatorPool pool;
+    // identifies the provider configuration in the pool, null for the default providers
+    private Object poolProvider;
 
     private AlgorithmIdentifier sigAlgId;
     private AlgorithmParameterSpec sigAlgSpec;
@@ -97,6 +100,7 @@ public class JcaContentSignerBuilder
     public JcaContentSignerBuilder setProvider(Provider provider)
     {
         this.helper = new OperatorHelper(new ProviderJcaJceHelper(provider));
+        this.poolProvider = provider;
 
         return this;
     }
@@ -104,6 +108,7 @@ public class JcaContentSignerBuilder
     public JcaContentSignerBuilder setProvider(String providerName)
     {
         this.helper = new OperatorHelper(new NamedJcaJceHelper(providerName));
+        this.poolProvider = providerName;
 
         return this;
     }
@@ -115,6 +120,20 @@ public class JcaContentSignerBuilder
         return this;
     }
 
+    /**
+     * Take Signature objects from, and return them to, the passed in pool. Signers built while a pool is
+     * set must not be used after getSignature() has been called on them.
+     *
+     * @param pool the pool to use, null to create a new Signature for each signer.
+     * @return the current builder instance.
+     */
+    public JcaContentSignerBuilder setOperatorPool(JcaOperatorPool pool)
+    {
+        this.pool = pool;
+
+        return this;
+    }
+
     public ContentSigner build(PrivateKey privateKey)
         throws OperatorCreationException
     {
@@ -133,14 +152,18 @@ public class JcaContentSignerBuilder
                     sigAlgId = PrivateKeyInfo.getInstance(privateKey.getEncoded()).getPrivateKeyAlgorithm();
                     this.sigAlgSpec = null;
                 }
-                else
+                else if (sigAlgId == null)
                 {
+                    // the algorithm name is fixed, so the identifier only needs to be found once.
                     this.sigAlgId = new DefaultSignatureAlgorithmIdentifierFinder().find(signatureAlgorithm);
                     this.sigAlgSpec = null;
                 }
             }
             final AlgorithmIdentifier signatureAlgId = sigAlgId;
-            final Signature sig = helper.createSignature(sigAlgId);
+            final JcaOperatorPool signerPool = pool;
+            final Object signerProvider = poolProvider;
+            Signature pooledSig = (signerPool != null) ? signerPool.takeSignature(signerProvider, signatureAlgId) : null;
+            final Signature sig = (pooledSig != null) ? pooledSig : helper.createSignature(signatureAlgId);
 
             if (random != null)
             {
@@ -154,6 +177,7 @@ public class JcaContentSignerBuilder
             return new ContentSigner()
             {
                 private OutputStream stream = OutputStreamFactory.createStream(sig);
+                private boolean released = false;
 
                 public AlgorithmIdentifier getAlgorithmIdentifier()
                 {
@@ -169,7 +193,16 @@ public class JcaContentSignerBuilder
                 {
                     try
                     {
-                        return sig.sign();
+                        byte[] signature = sig.sign();
+
+                        // only hand the signature back once, a second call must not put it in the pool twice.
+                        if (signerPool != null && !released)
+                        {
+                            released = true;
+                            signerPool.releaseSignature(signerProvider, signatureAlgId, sig);
+                        }
+
+                        return signature;
                     }
                     catch (SignatureException e)
                     {
@@ -33,6 +33,9 @@ import com.android.internal.org.bouncycastle.util.io.TeeOutputStream;
 public class JcaContentVerifierProviderBuilder
 {
     private OperatorHelper helper = new OperatorHelper(new DefaultJcaJceHelper());
+    private JcaOperatorPool pool;
+    // identifies the provider configuration in the pool, null for the default providers
+    private Object poolProvider;
 
     public JcaContentVerifierProviderBuilder()
     {
@@ -41,6 +44,7 @@ public class JcaContentVerifierProviderBuilder
     public JcaContentVerifierProviderBuilder setProvider(Provider provider)
     {
         this.helper = new OperatorHelper(new ProviderJcaJceHelper(provider));
+        this.poolProvider = provider;
 
         return this;
     }
@@ -48,6 +52,21 @@ public class JcaContentVerifierProviderBuilder
     public JcaContentVerifierProviderBuilder setProvider(String providerName)
     {
         this.helper = new OperatorHelper(new NamedJcaJceHelper(providerName));
+        this.poolProvider = providerName;
+
+        return this;
+    }
+
+    /**
+     * Take Signature objects from, and return them to, the passed in pool. Verifiers produced while a pool
+     * is set must not be used after verify() has been called on them.
+     *
+     * @param pool the pool to use, null to create new Signature objects for each verifier.
+     * @return the current builder instance.
+     */
+    public JcaContentVerifierProviderBuilder setOperatorPool(JcaOperatorPool pool)
+    {
+        this.pool = pool;
 
         return this;
     }
@@ -93,28 +112,7 @@ public class JcaContentVerifierProviderBuilder
                 }
                 else
                 {
-                    Signature sig;
-                    try
-                    {
-                        sig = helper.createSignature(algorithm);
-
-                        sig.initVerify(certificate.getPublicKey());
-                    }
-                    catch (GeneralSecurityException e)
-                    {
-                        throw new OperatorCreationException("exception on setup: " + e, e);
-                    }
-
-                    Signature rawSig = createRawSig(algorithm, certificate.getPublicKey());
-
-                    if (rawSig != null)
-                    {
-                        return new RawSigVerifier(algorithm, sig, rawSig);
-                    }
-                    else
-                    {
-                        return new SigVerifier(algorithm, sig);
-                    }
+                    return createVerifier(algorithm, certificate.getPublicKey());
                 }
             }
         };
@@ -152,9 +150,9 @@ public class JcaContentVerifierProviderBuilder
                     {
                         try
                         {
-                            Signature sig = createSignature(algorithm, (PublicKey)keys.get(i));
+                            Signature sig = createSignature(null, algorithm, (PublicKey)keys.get(i));
 
-                            Signature rawSig = createRawSig(algorithm, (PublicKey)keys.get(i));
+                            Signature rawSig = createRawSig(null, algorithm, (PublicKey)keys.get(i));
 
                             if (rawSig != null)
                             {
@@ -175,18 +173,7 @@ public class JcaContentVerifierProviderBuilder
                 }
                 else
                 {
-                    Signature sig = createSignature(algorithm, publicKey);
-
-                    Signature rawSig = createRawSig(algorithm, publicKey);
-
-                    if (rawSig != null)
-                    {
-                        return new RawSigVerifier(algorithm, sig, rawSig);
-                    }
-                    else
-                    {
-                        return new SigVerifier(algorithm, sig);
-                    }
+                    return createVerifier(algorithm, publicKey);
                 }
             }
         };
@@ -211,7 +198,7 @@ public class JcaContentVerifierProviderBuilder
                 AlgorithmIdentifier sigAlg = AlgorithmIdentifier.getInstance(keySeq.getObjectAt(i));
                 if (pubKeys.get(i) != null)
                 {
-                    sigs[i] = createSignature(sigAlg, (PublicKey)pubKeys.get(i));
+                    sigs[i] = createSignature(null, sigAlg, (PublicKey)pubKeys.get(i));
                 }
                 else
                 {
@@ -230,7 +217,7 @@ public class JcaContentVerifierProviderBuilder
                 AlgorithmIdentifier sigAlg = AlgorithmIdentifier.getInstance(keySeq.getObjectAt(i));
                 try
                 {
-                    sigs[i] = createSignature(sigAlg, publicKey);
+                    sigs[i] = createSignature(null, sigAlg, publicKey);
                 }
                 catch (Exception e)
                 {
@@ -243,12 +230,36 @@ public class JcaContentVerifierProviderBuilder
         }
     }
 
-    private Signature createSignature(AlgorithmIdentifier algorithm, PublicKey publicKey)
+    private ContentVerifier createVerifier(AlgorithmIdentifier algorithm, PublicKey publicKey)
+        throws OperatorCreationException
+    {
+        JcaOperatorPool verifierPool = pool;
+
+        Signature sig = createSignature(verifierPool, algorithm, publicKey);
+
+        Signature rawSig = createRawSig(verifierPool, algorithm, publicKey);
+
+        if (rawSig != null)
+        {
+            return new RawSigVerifier(algorithm, sig, rawSig, verifierPool, poolProvider);
+        }
+        else
+        {
+            return new SigVerifier(algorithm, sig, verifierPool, poolProvider);
+        }
+    }
+
+    // verifierPool is the pool to take the signature from, null if a new one should always be created.
+    private Signature createSignature(JcaOperatorPool verifierPool, AlgorithmIdentifier algorithm, PublicKey publicKey)
         throws OperatorCreationException
     {
         try
         {
-            Signature sig = helper.createSignature(algorithm);
+            Signature sig = (verifierPool != null) ? verifierPool.takeSignature(poolProvider, algorithm) : null;
+            if (sig == null)
+            {
+                sig = helper.createSignature(algorithm);
+            }
 
             sig.initVerify(publicKey);
 
@@ -260,12 +271,25 @@ public class JcaContentVerifierProviderBuilder
         }
     }
 
-    private Signature createRawSig(AlgorithmIdentifier algorithm, PublicKey publicKey)
+    private Signature createRawSig(JcaOperatorPool verifierPool, AlgorithmIdentifier algorithm, PublicKey publicKey)
     {
+        if (verifierPool != null && !verifierPool.hasRawSignature(poolProvider, algorithm))
+        {
+            return null;
+        }
+
         Signature rawSig;
         try
         {
-            rawSig = helper.createRawSignature(algorithm);
+            rawSig = (verifierPool != null) ? verifierPool.takeRawSignature(poolProvider, algorithm) : null;
+            if (rawSig == null)
+            {
+                rawSig = helper.createRawSignature(algorithm);
+                if (rawSig == null && verifierPool != null)
+                {
+                    verifierPool.noRawSignature(poolProvider, algorithm);
+                }
+            }
 
             if (rawSig != null)
             {
@@ -284,13 +308,24 @@ public class JcaContentVerifierProviderBuilder
     {
         private final AlgorithmIdentifier algorithm;
         private final Signature signature;
+        protected final JcaOperatorPool pool;
+        protected final Object poolProvider;
 
         protected final OutputStream stream;
 
+        private boolean released = false;
+
         SigVerifier(AlgorithmIdentifier algorithm, Signature signature)
+        {
+            this(algorithm, signature, null, null);
+        }
+
+        SigVerifier(AlgorithmIdentifier algorithm, Signature signature, JcaOperatorPool pool, Object poolProvider)
         {
             this.algorithm = algorithm;
             this.signature = signature;
+            this.pool = pool;
+            this.poolProvider = poolProvider;
             this.stream = OutputStreamFactory.createStream(signature);
         }
 
@@ -310,6 +345,18 @@ public class JcaContentVerifierProviderBuilder
         }
 
         public boolean verify(byte[] expected)
+        {
+            try
+            {
+                return verifySignature(expected);
+            }
+            finally
+            {
+                release();
+            }
+        }
+
+        protected boolean verifySignature(byte[] expected)
         {
             try
             {
@@ -320,6 +367,24 @@ public class JcaContentVerifierProviderBuilder
                 throw new RuntimeOperatorException("exception obtaining signature: " + e.getMessage(), e);
             }
         }
+
+        /**
+         * Hand the engines back to the pool, if there is one. The next user re-initialises them, so they can go
+         * back whatever the outcome, but only the first call hands them back.
+         */
+        protected void release()
+        {
+            if (pool != null && !released)
+            {
+                released = true;
+                releaseEngines();
+            }
+        }
+
+        protected void releaseEngines()
+        {
+            pool.releaseSignature(poolProvider, algorithm, signature);
+        }
     }
 
     private static class RawSigVerifier
@@ -330,7 +395,13 @@ public class JcaContentVerifierProviderBuilder
 
         RawSigVerifier(AlgorithmIdentifier algorithm, Signature standardSig, Signature rawSignature)
         {
-            super(algorithm, standardSig);
+            this(algorithm, standardSig, rawSignature, null, null);
+        }
+
+        RawSigVerifier(AlgorithmIdentifier algorithm, Signature standardSig, Signature rawSignature, JcaOperatorPool pool,
+            Object poolProvider)
+        {
+            super(algorithm, standardSig, pool, poolProvider);
             this.rawSignature = rawSignature;
         }
 
@@ -338,7 +409,7 @@ public class JcaContentVerifierProviderBuilder
         {
             try
             {
-                return super.verify(expected);
+                return verifySignature(expected);
             }
             finally
             {
@@ -352,6 +423,8 @@ public class JcaContentVerifierProviderBuilder
                 {
                     // ignore
                 }
+
+                release();
             }
         }
 
@@ -379,8 +452,16 @@ public class JcaContentVerifierProviderBuilder
                 {
                     // ignore
                 }
+
+                release();
             }
         }
+
+        protected void releaseEngines()
+        {
+            super.releaseEngines();
+            pool.releaseRawSignature(poolProvider, getAlgorithmIdentifier(), rawSignature);
+        }
     }
 
     private static class CompositeVerifier
@@ -18,6 +18,9 @@ import com.android.internal.org.bouncycastle.operator.OperatorCreationException;
 public class JcaDigestCalculatorProviderBuilder
 {
     private OperatorHelper helper = new OperatorHelper(new DefaultJcaJceHelper());
+    private JcaOperatorPool pool;
+    // identifies the provider configuration in the pool, null for the default providers
+    private Object poolProvider;
 
     public JcaDigestCalculatorProviderBuilder()
     {
@@ -27,6 +30,7 @@ public class JcaDigestCalculatorProviderBuilder
     public JcaDigestCalculatorProviderBuilder setHelper(JcaJceHelper helper)
     {
         this.helper = new OperatorHelper(helper);
+        this.poolProvider = helper;
 
         return this;
     }
@@ -34,6 +38,7 @@ public class JcaDigestCalculatorProviderBuilder
     public JcaDigestCalculatorProviderBuilder setProvider(Provider provider)
     {
         this.helper = new OperatorHelper(new ProviderJcaJceHelper(provider));
+        this.poolProvider = provider;
 
         return this;
     }
@@ -41,6 +46,21 @@ public class JcaDigestCalculatorProviderBuilder
     public JcaDigestCalculatorProviderBuilder setProvider(String providerName)
     {
         this.helper = new OperatorHelper(new NamedJcaJceHelper(providerName));
+        this.poolProvider = providerName;
+
+        return this;
+    }
+
+    /**
+     * Take MessageDigest objects from, and return them to, the passed in pool. Calculators produced while
+     * a pool is set must not be used after getDigest() has been called on them.
+     *
+     * @param pool the pool to use, null to create a new MessageDigest for each calculator.
+     * @return the current builder instance.
+     */
+    public JcaDigestCalculatorProviderBuilder setOperatorPool(JcaOperatorPool pool)
+    {
+        this.pool = pool;
 
         return this;
     }
@@ -48,6 +68,9 @@ public class JcaDigestCalculatorProviderBuilder
     public DigestCalculatorProvider build()
         throws OperatorCreationException
     {
+        final JcaOperatorPool digestPool = pool;
+        final Object digestProvider = poolProvider;
+
         return new DigestCalculatorProvider()
         {
             public DigestCalculator get(final AlgorithmIdentifier algorithm)
@@ -57,7 +80,11 @@ public class JcaDigestCalculatorProviderBuilder
 
                 try
                 {
-                    MessageDigest dig = helper.createDigest(algorithm);
+                    MessageDigest dig = (digestPool != null) ? digestPool.takeDigest(digestProvider, algorithm) : null;
+                    if (dig == null)
+                    {
+                        dig = helper.createDigest(algorithm);
+                    }
 
                     stream = new DigestOutputStream(dig);
                 }
@@ -68,6 +95,8 @@ public class JcaDigestCalculatorProviderBuilder
 
                 return new DigestCalculator()
                 {
+                    private boolean released = false;
+
                     public AlgorithmIdentifier getAlgorithmIdentifier()
                     {
                         return algorithm;
@@ -80,7 +109,16 @@ public class JcaDigestCalculatorProviderBuilder
 
                     public byte[] getDigest()
                     {
-                        return stream.getDigest();
+                        byte[] digest = stream.getDigest();
+
+                        // only hand the digest back once, a second call must not put it in the pool twice.
+                        if (digestPool != null && !released)
+                        {
+                            released = true;
+                            digestPool.releaseDigest(digestProvider, algorithm, stream.dig);
+                        }
+
+                        return digest;
                     }
                 };
             }
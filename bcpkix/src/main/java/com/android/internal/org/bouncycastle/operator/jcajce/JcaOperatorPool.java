@@ -0,0 +1,262 @@
+package com.android.internal.org.bouncycastle.operator.jcajce;
+
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.android.internal.org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+
+/**
+ * A thread safe pool of Signature and MessageDigest objects, keyed by the AlgorithmIdentifier they were created
+ * for and the provider configured on the builder that created them. A pool can be passed to JcaContentSignerBuilder, JcaContentVerifierProviderBuilder, and
+ * JcaDigestCalculatorProviderBuilder so that the operators they produce reuse engines rather than going through
+ * the provider look up and algorithm name resolution for every operation.
+ * <p>
+ * Engines are handed back to the pool once the operator using them is finished with, that is after
+ * ContentSigner.getSignature(), ContentVerifier.verify(), or DigestCalculator.getDigest() has been called.
+ * An operator must not be used again after that point. Signature objects are re-initialised with the key
+ * of the next operation when they are taken out of the pool, but until then a pooled Signature still refers
+ * to the key it was last initialised with.
+ * </p>
+ * <p>
+ * Builders configured with different providers can share a pool, engines are only handed to a builder set up
+ * with the same Provider object, provider name, or helper as the one that created them.
+ * </p>
+ */
+public class JcaOperatorPool
+{
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    private final int maxIdle;
+
+    private final ConcurrentHashMap signatures = new ConcurrentHashMap();
+    private final ConcurrentHashMap rawSignatures = new ConcurrentHashMap();
+    private final ConcurrentHashMap digests = new ConcurrentHashMap();
+    // algorithms the provider configuration has no raw (NONEwith) signature form for, EdDSA for example
+    private final ConcurrentHashMap noRawSignatures = new ConcurrentHashMap();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong returns = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+
+    /**
+     * Create a pool holding up to DEFAULT_MAX_IDLE idle engines for each algorithm.
+     */
+    public JcaOperatorPool()
+    {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Create a pool holding up to maxIdle idle engines for each algorithm.
+     *
+     * @param maxIdle the maximum number of idle engines kept for an algorithm.
+     */
+    public JcaOperatorPool(int maxIdle)
+    {
+        if (maxIdle < 1)
+        {
+            throw new IllegalArgumentException("maxIdle must be at least 1");
+        }
+
+        this.maxIdle = maxIdle;
+    }
+
+    // provider is the builder's provider configuration, see Key, null for the default providers.
+    Signature takeSignature(Object provider, AlgorithmIdentifier algorithm)
+    {
+        return (Signature)take(signatures, new Key(provider, algorithm));
+    }
+
+    void releaseSignature(Object provider, AlgorithmIdentifier algorithm, Signature signature)
+    {
+        release(signatures, new Key(provider, algorithm), signature);
+    }
+
+    Signature takeRawSignature(Object provider, AlgorithmIdentifier algorithm)
+    {
+        return (Signature)take(rawSignatures, new Key(provider, algorithm));
+    }
+
+    // false if an earlier attempt found there is no raw signature for the algorithm, so it need not be tried again.
+    boolean hasRawSignature(Object provider, AlgorithmIdentifier algorithm)
+    {
+        return !noRawSignatures.containsKey(new Key(provider, algorithm));
+    }
+
+    // called when takeRawSignature() found nothing and no raw signature could be created either, that take was
+    // a look up rather than a miss, as the pool could never have supplied an engine for it.
+    void noRawSignature(Object provider, AlgorithmIdentifier algorithm)
+    {
+        noRawSignatures.put(new Key(provider, algorithm), Boolean.TRUE);
+        misses.decrementAndGet();
+    }
+
+    void releaseRawSignature(Object provider, AlgorithmIdentifier algorithm, Signature signature)
+    {
+        release(rawSignatures, new Key(provider, algorithm), signature);
+    }
+
+    MessageDigest takeDigest(Object provider, AlgorithmIdentifier algorithm)
+    {
+        return (MessageDigest)take(digests, new Key(provider, algorithm));
+    }
+
+    void releaseDigest(Object provider, AlgorithmIdentifier algorithm, MessageDigest digest)
+    {
+        digest.reset();
+
+        release(digests, new Key(provider, algorithm), digest);
+    }
+
+    /**
+     * Return the number of requests that were satisfied from the pool.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of requests that required a new engine to be created.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Return the number of engines handed back and kept by the pool.
+     */
+    public long getReturnCount()
+    {
+        return returns.get();
+    }
+
+    /**
+     * Return the number of engines handed back and dropped as the pool for their algorithm was full.
+     */
+    public long getDiscardCount()
+    {
+        return discards.get();
+    }
+
+    /**
+     * Return the number of engines currently idle in the pool.
+     */
+    public int getIdleCount()
+    {
+        return idleCount(signatures) + idleCount(rawSignatures) + idleCount(digests);
+    }
+
+    /**
+     * Drop all idle engines and reset the counters.
+     */
+    public void clear()
+    {
+        signatures.clear();
+        rawSignatures.clear();
+        digests.clear();
+        hits.set(0);
+        misses.set(0);
+        returns.set(0);
+        discards.set(0);
+    }
+
+    private Object take(ConcurrentHashMap engines, Key key)
+    {
+        Queue idle = (Queue)engines.get(key);
+        Object engine = (idle != null) ? idle.poll() : null;
+
+        if (engine != null)
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            misses.incrementAndGet();
+        }
+
+        return engine;
+    }
+
+    private void release(ConcurrentHashMap engines, Key key, Object engine)
+    {
+        Queue idle = (Queue)engines.get(key);
+        if (idle == null)
+        {
+            Queue newIdle = new ArrayBlockingQueue(maxIdle);
+
+            idle = (Queue)engines.putIfAbsent(key, newIdle);
+            if (idle == null)
+            {
+                idle = newIdle;
+            }
+        }
+
+        if (idle.offer(engine))
+        {
+            returns.incrementAndGet();
+        }
+        else
+        {
+            discards.incrementAndGet();
+        }
+    }
+
+    private static int idleCount(ConcurrentHashMap engines)
+    {
+        int count = 0;
+        for (Iterator it = engines.values().iterator(); it.hasNext();)
+        {
+            count += ((Queue)it.next()).size();
+        }
+        return count;
+    }
+
+    /**
+     * An algorithm together with the provider configuration of the builder, which is the Provider object, the
+     * provider name, or the JcaJceHelper passed to the builder. Only names are compared by value, a Provider
+     * compares by its contents, which is slow and can change.
+     */
+    private static class Key
+    {
+        private final Object provider;
+        private final AlgorithmIdentifier algorithm;
+
+        Key(Object provider, AlgorithmIdentifier algorithm)
+        {
+            this.provider = provider;
+            this.algorithm = algorithm;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+
+            Key other = (Key)o;
+
+            return algorithm.equals(other.algorithm)
+                && (provider == other.provider || (provider instanceof String && provider.equals(other.provider)));
+        }
+
+        public int hashCode()
+        {
+            int providerHash = (provider instanceof String) ? provider.hashCode() : System.identityHashCode(provider);
+
+            return algorithm.hashCode() * 31 + providerHash;
+        }
+    }
+}
@@ -35,17 +35,8 @@ public class BinaryTreeRootCalculator
         {
             do
             {
-                List newHashes = new ArrayList(hashValues.size() / 2 + 1);
-
-                for (int i = 0; i <= hashValues.size() - 2; i += 2)
-                {
-                    newHashes.add(ERSUtil.calculateBranchHash(digCalc, (byte[])hashValues.get(i), (byte[])hashValues.get(i + 1)));
-                }
-
-                if (hashValues.size() % 2 == 1)
-                {
-                    newHashes.add(hashValues.get(hashValues.size() - 1));
-                }
+                // all the branch hashes in a row are independent, so they are calculated together
+                List<byte[]> newHashes = ERSUtil.calculateBranchHashes(digCalc, hashValues);
 
                 tree.add(newHashes);
                 hashValues = newHashes;
@@ -94,8 +85,9 @@ public class BinaryTreeRootCalculator
 
             path.add(new PartialHashtree(neighborHash));
 
-            nodeHash = ERSUtil.calculateBranchHash(digCalc, nodeHash, neighborHash);
+            // the branch hash is already in the next row of the tree
             index = index / 2;
+            nodeHash = (byte[])((List<byte[]>)tree.get(row + 1)).get(index);
             row++;
         }
 
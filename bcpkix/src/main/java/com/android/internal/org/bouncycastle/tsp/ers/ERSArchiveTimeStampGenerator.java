@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import com.android.internal.org.bouncycastle.asn1.ASN1Encoding;
 import com.android.internal.org.bouncycastle.asn1.cms.ContentInfo;
@@ -15,26 +16,97 @@ import com.android.internal.org.bouncycastle.asn1.tsp.ArchiveTimeStampSequence;
 import com.android.internal.org.bouncycastle.asn1.tsp.PartialHashtree;
 import com.android.internal.org.bouncycastle.asn1.tsp.TSTInfo;
 import com.android.internal.org.bouncycastle.operator.DigestCalculator;
+import com.android.internal.org.bouncycastle.operator.DigestCalculatorProvider;
+import com.android.internal.org.bouncycastle.operator.OperatorCreationException;
 import com.android.internal.org.bouncycastle.tsp.TSPException;
 import com.android.internal.org.bouncycastle.tsp.TimeStampRequest;
 import com.android.internal.org.bouncycastle.tsp.TimeStampRequestGenerator;
 import com.android.internal.org.bouncycastle.tsp.TimeStampResponse;
 import com.android.internal.org.bouncycastle.util.Arrays;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * Generator for RFC 4998 Archive Time Stamps.
+ * <p>
+ * If constructed with an executor, the hashes of the data objects, including the members of data groups such
+ * as directories, are calculated as concurrent tasks before the hash tree is built.
+ * </p>
+ * <p>
+ * By default every hash is calculated with the DigestCalculator passed in. See setUseMultiBufferSHA256() for
+ * letting the generator calculate batches of SHA-256 hashes itself.
+ * </p>
  */
 public class ERSArchiveTimeStampGenerator
 {
+    // number of data objects hashed by each concurrent task
+    private static final int TASK_OBJECTS = 16;
+
     private final DigestCalculator digCalc;
+    private final DigestCalculatorProvider digCalcProvider;
+    private final Executor executor;
     private List<ERSData> dataObjects = new ArrayList<ERSData>();
 
     private ERSRootNodeCalculator rootNodeCalculator = new BinaryTreeRootCalculator();
     private byte[] previousChainHash;
+    // the calculator used for building the hash tree, digCalc unless multi-buffer hashing has been asked for
+    private DigestCalculator treeDigCalc;
 
     public ERSArchiveTimeStampGenerator(DigestCalculator digCalc)
     {
         this.digCalc = digCalc;
+        this.digCalcProvider = null;
+        this.executor = null;
+        this.treeDigCalc = digCalc;
+    }
+
+    /**
+     * Constructor for a generator which hashes data objects concurrently.
+     *
+     * @param digCalc the digest calculator for the archive time stamp.
+     * @param digCalcProvider provider of further digest calculators for digCalc's algorithm, one for each task.
+     * @param executor the executor to run the hashing tasks on.
+     * @throws NullPointerException if digCalcProvider or executor is null.
+     */
+    public ERSArchiveTimeStampGenerator(DigestCalculator digCalc, DigestCalculatorProvider digCalcProvider, Executor executor)
+    {
+        if (digCalcProvider == null)
+        {
+            throw new NullPointerException("digCalcProvider cannot be null");
+        }
+        if (executor == null)
+        {
+            throw new NullPointerException("executor cannot be null");
+        }
+
+        this.digCalc = digCalc;
+        this.digCalcProvider = digCalcProvider;
+        this.executor = executor;
+        this.treeDigCalc = digCalc;
+    }
+
+    /**
+     * Allow batches of independent SHA-256 hashes, such as the rows of the hash tree and the hashes of plain
+     * ERSByteData objects, to be calculated with the library's own multi-buffer SHA-256 rather than the
+     * DigestCalculator passed in. This is off by default, and should be left off if the DigestCalculator's
+     * provider is required to do the hashing, for example a FIPS or hardware provider.
+     *
+     * @param useMultiBuffer true if multi-buffer SHA-256 may be used, false otherwise.
+     * @throws IllegalStateException if useMultiBuffer is true and the generator's digest is not SHA-256.
+     */
+    public void setUseMultiBufferSHA256(boolean useMultiBuffer)
+    {
+        if (useMultiBuffer)
+        {
+            if (!ERSUtil.isSHA256(digCalc))
+            {
+                throw new IllegalStateException("multi-buffer hashing requires a SHA-256 digest calculator");
+            }
+            this.treeDigCalc = new MultiBufferDigestCalculator(digCalc);
+        }
+        else
+        {
+            this.treeDigCalc = digCalc;
+        }
     }
 
     public void addData(ERSData dataObject)
@@ -63,7 +135,7 @@ public class ERSArchiveTimeStampGenerator
     {
         IndexedPartialHashtree[] reducedHashTree = getPartialHashtrees();
 
-        byte[] rootHash = rootNodeCalculator.computeRootHash(digCalc, reducedHashTree);
+        byte[] rootHash = rootNodeCalculator.computeRootHash(treeDigCalc, reducedHashTree);
 
         return tspReqGenerator.generate(digCalc.getAlgorithmIdentifier(), rootHash);
     }
@@ -73,7 +145,7 @@ public class ERSArchiveTimeStampGenerator
     {
         IndexedPartialHashtree[] reducedHashTree = getPartialHashtrees();
 
-        byte[] rootHash = rootNodeCalculator.computeRootHash(digCalc, reducedHashTree);
+        byte[] rootHash = rootNodeCalculator.computeRootHash(treeDigCalc, reducedHashTree);
 
         return tspReqGenerator.generate(digCalc.getAlgorithmIdentifier(), rootHash, nonce);
     }
@@ -87,7 +159,7 @@ public class ERSArchiveTimeStampGenerator
             throw new ERSException("multiple reduced hash trees found");
         }
 
-        byte[] rootHash = rootNodeCalculator.computeRootHash(digCalc, reducedHashTree);
+        byte[] rootHash = rootNodeCalculator.computeRootHash(treeDigCalc, reducedHashTree);
 
         if (tspResponse.getStatus() != 0)
         {
@@ -124,7 +196,7 @@ public class ERSArchiveTimeStampGenerator
     {
         IndexedPartialHashtree[] reducedHashTree = getPartialHashtrees();
 
-        byte[] rootHash = rootNodeCalculator.computeRootHash(digCalc, reducedHashTree);
+        byte[] rootHash = rootNodeCalculator.computeRootHash(treeDigCalc, reducedHashTree);
 
         if (tspResponse.getStatus() != 0)
         {
@@ -158,7 +230,7 @@ public class ERSArchiveTimeStampGenerator
             // we compute the final hash tree by left first traversal.
             for (int i = 0; i != reducedHashTree.length; i++)
             {
-                PartialHashtree[] path = rootNodeCalculator.computePathToRoot(digCalc, reducedHashTree[i], i);
+                PartialHashtree[] path = rootNodeCalculator.computePathToRoot(treeDigCalc, reducedHashTree[i], i);
 
                 archiveTimeStamps[reducedHashTree[i].order] = new ERSArchiveTimeStamp(new ArchiveTimeStamp(digCalc.getAlgorithmIdentifier(), path, timeStamp), digCalc);
             }
@@ -175,7 +247,12 @@ public class ERSArchiveTimeStampGenerator
 
     private IndexedPartialHashtree[] getPartialHashtrees()
     {
-        List<IndexedHash> hashes = ERSUtil.buildIndexedHashList(digCalc, dataObjects, previousChainHash);
+        if (executor != null)
+        {
+            calculateHashesConcurrently();
+        }
+
+        List<IndexedHash> hashes = ERSUtil.buildIndexedHashList(treeDigCalc, dataObjects, previousChainHash);
         IndexedPartialHashtree[] trees = new IndexedPartialHashtree[hashes.size()];
 
         Set<ERSDataGroup> dataGroupSet = new HashSet<ERSDataGroup>();
@@ -197,7 +274,7 @@ public class ERSArchiveTimeStampGenerator
             {
                 ERSDataGroup data = (ERSDataGroup)d;
 
-                List<byte[]> dHashes = data.getHashes(digCalc, previousChainHash);
+                List<byte[]> dHashes = data.getHashes(treeDigCalc, previousChainHash);
                 trees[i] = new IndexedPartialHashtree(((IndexedHash)hashes.get(i)).order, (byte[][])dHashes.toArray(new byte[dHashes.size()][]));
             }
             else
@@ -209,6 +286,65 @@ public class ERSArchiveTimeStampGenerator
         return trees;
     }
 
+    /**
+     * Calculate the hashes of the cachable data objects, looking inside data groups, as concurrent tasks, so
+     * building the tree afterwards finds them in the ERSCachingData caches.
+     */
+    private void calculateHashesConcurrently()
+    {
+        List<ERSData> leaves = new ArrayList<ERSData>();
+        collectLeaves(dataObjects, leaves);
+
+        int taskCount = (leaves.size() + TASK_OBJECTS - 1) / TASK_OBJECTS;
+        TaskGroup tasks = new TaskGroup(executor);
+
+        for (int t = 0; t != taskCount; t++)
+        {
+            // each task hashes its own run of data objects with its own digest calculator
+            final List<ERSData> taskLeaves = leaves.subList(t * TASK_OBJECTS, Math.min(leaves.size(), (t + 1) * TASK_OBJECTS));
+            final DigestCalculator taskDigCalc;
+            try
+            {
+                taskDigCalc = digCalcProvider.get(digCalc.getAlgorithmIdentifier());
+            }
+            catch (OperatorCreationException e)
+            {
+                throw ExpUtil.createIllegalState("unable to create digest calculator: " + e.getMessage(), e);
+            }
+
+            tasks.execute(new Runnable()
+            {
+                public void run()
+                {
+                    for (int i = 0; i != taskLeaves.size(); i++)
+                    {
+                        ((ERSData)taskLeaves.get(i)).getHash(taskDigCalc, previousChainHash);
+                    }
+                }
+            });
+        }
+
+        tasks.await();
+    }
+
+    private static void collectLeaves(List<ERSData> dataObjects, List<ERSData> leaves)
+    {
+        for (int i = 0; i != dataObjects.size(); i++)
+        {
+            ERSData data = (ERSData)dataObjects.get(i);
+
+            if (data instanceof ERSDataGroup)
+            {
+                collectLeaves(((ERSDataGroup)data).dataObjects, leaves);
+            }
+            else if (data instanceof ERSCachingData)
+            {
+                // only hashes that are cached are worth calculating ahead of time
+                leaves.add(data);
+            }
+        }
+    }
+
     private static class IndexedPartialHashtree
         extends PartialHashtree
     {
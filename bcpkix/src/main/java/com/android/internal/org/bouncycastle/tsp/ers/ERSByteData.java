@@ -15,6 +15,11 @@ public class ERSByteData
         this.content = content;
     }
 
+    byte[] getContent()
+    {
+        return content;
+    }
+
     protected byte[] calculateHash(DigestCalculator digestCalculator, byte[] previousChainHash)
     {
         byte[] hash = ERSUtil.calculateDigest(digestCalculator, content);
@@ -1,8 +1,12 @@
 package com.android.internal.org.bouncycastle.tsp.ers;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.android.internal.org.bouncycastle.asn1.ASN1Encodable;
+import com.android.internal.org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import com.android.internal.org.bouncycastle.asn1.DERNull;
 import com.android.internal.org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import com.android.internal.org.bouncycastle.operator.DigestCalculator;
 import com.android.internal.org.bouncycastle.util.Arrays;
@@ -13,7 +17,8 @@ import com.android.internal.org.bouncycastle.util.Arrays;
 public abstract class ERSCachingData
     implements ERSData
 {
-    private Map<CacheIndex, byte[]> preCalcs = new HashMap<CacheIndex, byte[]>();
+    // hashes may be calculated on other threads by ERSArchiveTimeStampGenerator
+    private Map<CacheIndex, byte[]> preCalcs = Collections.synchronizedMap(new HashMap<CacheIndex, byte[]>());
 
     /**
      * Generates a hash for the whole DataGroup.
@@ -38,14 +43,29 @@ public abstract class ERSCachingData
 
     protected abstract byte[] calculateHash(DigestCalculator digestCalculator, byte[] previousChainHash);
 
+    boolean isHashCached(DigestCalculator digestCalculator, byte[] previousChainHash)
+    {
+        return preCalcs.containsKey(new CacheIndex(digestCalculator.getAlgorithmIdentifier(), previousChainHash));
+    }
+
+    void cacheHash(DigestCalculator digestCalculator, byte[] previousChainHash, byte[] hash)
+    {
+        preCalcs.put(new CacheIndex(digestCalculator.getAlgorithmIdentifier(), previousChainHash), hash);
+    }
+
     private static class CacheIndex
     {
-        final AlgorithmIdentifier algId;
+        final ASN1ObjectIdentifier algorithm;
+        final ASN1Encodable parameters;
         final byte[] chainHash;
 
         private CacheIndex(AlgorithmIdentifier algId, byte[] chainHash)
         {
-            this.algId = algId;
+            // NULL and absent parameters are the same digest, so calculators for either share cached hashes
+            ASN1Encodable parameters = algId.getParameters();
+
+            this.algorithm = algId.getAlgorithm();
+            this.parameters = DERNull.INSTANCE.equals(parameters) ? null : parameters;
             this.chainHash = chainHash;
         }
 
@@ -60,12 +80,14 @@ public abstract class ERSCachingData
                 return false;
             }
             CacheIndex that = (CacheIndex)o;
-            return algId.equals(that.algId) && Arrays.areEqual(chainHash, that.chainHash);
+            return algorithm.equals(that.algorithm)
+                && (parameters == null ? that.parameters == null : parameters.equals(that.parameters))
+                && Arrays.areEqual(chainHash, that.chainHash);
         }
 
         public int hashCode()
         {
-            int result = algId.hashCode();
+            int result = algorithm.hashCode();
             return 31 * result + Arrays.hashCode(chainHash);
         }
     }
@@ -3,12 +3,16 @@ package com.android.internal.org.bouncycastle.tsp.ers;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
+import com.android.internal.org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
 import com.android.internal.org.bouncycastle.asn1.tsp.PartialHashtree;
+import com.android.internal.org.bouncycastle.crypto.digests.MultiBufferSHA256;
 import com.android.internal.org.bouncycastle.operator.DigestCalculator;
+import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.io.Streams;
 
 class ERSUtil
@@ -50,6 +54,37 @@ class ERSUtil
         }
     }
 
+    /**
+     * Calculate the branch hash of each adjacent pair in a row of the tree, carrying an odd last value up
+     * as it is.
+     */
+    static List<byte[]> calculateBranchHashes(DigestCalculator digCalc, List<byte[]> hashValues)
+    {
+        byte[][] branches = new byte[hashValues.size() / 2][];
+        for (int i = 0; i != branches.length; i++)
+        {
+            byte[] a = (byte[])hashValues.get(2 * i);
+            byte[] b = (byte[])hashValues.get(2 * i + 1);
+
+            branches[i] = (hashComp.compare(a, b) <= 0) ? Arrays.concatenate(a, b) : Arrays.concatenate(b, a);
+        }
+
+        byte[][] digests = calculateDigests(digCalc, branches);
+
+        List<byte[]> newHashes = new ArrayList<byte[]>(digests.length + 1);
+        for (int i = 0; i != digests.length; i++)
+        {
+            newHashes.add(digests[i]);
+        }
+
+        if (hashValues.size() % 2 == 1)
+        {
+            newHashes.add(hashValues.get(hashValues.size() - 1));
+        }
+
+        return newHashes;
+    }
+
     static byte[] calculateBranchHash(DigestCalculator digCalc, byte[][] values)
     {
         if (values.length == 2)
@@ -60,6 +95,31 @@ class ERSUtil
         return calculateDigest(digCalc, buildIndexedHashList(values).iterator());
     }
 
+    /**
+     * Calculate the digest of each of the passed in data items, using the multi-buffer SHA-256
+     * implementation only if the owner of digCalc has asked for it.
+     */
+    static byte[][] calculateDigests(DigestCalculator digCalc, byte[][] data)
+    {
+        if (data.length > 1 && digCalc instanceof MultiBufferDigestCalculator)
+        {
+            return new MultiBufferSHA256().digest(data);
+        }
+
+        byte[][] digests = new byte[data.length][];
+        for (int i = 0; i != data.length; i++)
+        {
+            digests[i] = calculateDigest(digCalc, data[i]);
+        }
+
+        return digests;
+    }
+
+    static boolean isSHA256(DigestCalculator digCalc)
+    {
+        return NISTObjectIdentifiers.id_sha256.equals(digCalc.getAlgorithmIdentifier().getAlgorithm());
+    }
+
     static byte[] calculateDigest(DigestCalculator digCalc, byte[] a, byte[] b)
     {
         try
@@ -141,8 +201,63 @@ class ERSUtil
         return hashes.toList();
     }
 
+    /**
+     * Calculate and cache the hashes of any plain ERSByteData objects in dataObjects together, so they
+     * can go through the multi-buffer SHA-256 implementation, if the owner of digCalc has asked for it.
+     */
+    static void precalculateHashes(DigestCalculator digCalc, List<ERSData> dataObjects, byte[] previousChainHash)
+    {
+        if (!(digCalc instanceof MultiBufferDigestCalculator))
+        {
+            return;
+        }
+
+        List<ERSByteData> pending = new ArrayList<ERSByteData>();
+        for (int i = 0; i != dataObjects.size(); i++)
+        {
+            Object data = dataObjects.get(i);
+
+            // subclasses may calculate their hash differently
+            if (data != null && data.getClass() == ERSByteData.class
+                && !((ERSByteData)data).isHashCached(digCalc, previousChainHash))
+            {
+                pending.add((ERSByteData)data);
+            }
+        }
+
+        if (pending.size() < 2)
+        {
+            return;
+        }
+
+        byte[][] contents = new byte[pending.size()][];
+        for (int i = 0; i != contents.length; i++)
+        {
+            contents[i] = ((ERSByteData)pending.get(i)).getContent();
+        }
+
+        byte[][] hashes = calculateDigests(digCalc, contents);
+
+        if (previousChainHash != null)
+        {
+            for (int i = 0; i != hashes.length; i++)
+            {
+                contents[i] = Arrays.concatenate(hashes[i], previousChainHash);
+            }
+
+            hashes = calculateDigests(digCalc, contents);
+        }
+
+        for (int i = 0; i != hashes.length; i++)
+        {
+            ((ERSByteData)pending.get(i)).cacheHash(digCalc, previousChainHash, hashes[i]);
+        }
+    }
+
     static List<byte[]> buildHashList(DigestCalculator digCalc, List<ERSData> dataObjects, byte[] previousChainHash)
     {
+        precalculateHashes(digCalc, dataObjects, previousChainHash);
+
         SortedHashList hashes = new SortedHashList();
 
         for (int i = 0; i != dataObjects.size(); i++)
@@ -155,6 +270,8 @@ class ERSUtil
 
     static List<IndexedHash> buildIndexedHashList(DigestCalculator digCalc, List<ERSData> dataObjects, byte[] previousChainsHash)
     {
+        precalculateHashes(digCalc, dataObjects, previousChainsHash);
+
         SortedIndexedHashList hashes = new SortedIndexedHashList();
 
         for (int i = 0; i != dataObjects.size(); i++)
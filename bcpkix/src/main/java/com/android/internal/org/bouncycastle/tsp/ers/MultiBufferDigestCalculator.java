@@ -0,0 +1,36 @@
+package com.android.internal.org.bouncycastle.tsp.ers;
+
+import java.io.OutputStream;
+
+import com.android.internal.org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import com.android.internal.org.bouncycastle.operator.DigestCalculator;
+
+/**
+ * A SHA-256 DigestCalculator whose owner has agreed to batches of independent hashes being calculated with
+ * MultiBufferSHA256 rather than the wrapped calculator. Single hashes still go to the wrapped calculator.
+ */
+class MultiBufferDigestCalculator
+    implements DigestCalculator
+{
+    private final DigestCalculator digCalc;
+
+    MultiBufferDigestCalculator(DigestCalculator digCalc)
+    {
+        this.digCalc = digCalc;
+    }
+
+    public AlgorithmIdentifier getAlgorithmIdentifier()
+    {
+        return digCalc.getAlgorithmIdentifier();
+    }
+
+    public OutputStream getOutputStream()
+    {
+        return digCalc.getOutputStream();
+    }
+
+    public byte[] getDigest()
+    {
+        return digCalc.getDigest();
+    }
+}
@@ -1,9 +1,10 @@
 package com.android.internal.org.bouncycastle.tsp.ers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * A sorting list - byte[] are sorted in ascending order.
@@ -12,7 +13,10 @@ public class SortedHashList
 {
     private static final Comparator<byte[]> hashComp = new ByteArrayComparator();
 
-    private final LinkedList<byte[]> baseList = new LinkedList<byte[]>();
+    // entries are appended and only sorted when the list is read, a stable sort keeps equal
+    // entries in the order they were added.
+    private final ArrayList<byte[]> baseList = new ArrayList<byte[]>();
+    private boolean sorted = true;
 
     public SortedHashList()
     {
@@ -20,39 +24,20 @@ public class SortedHashList
 
     public byte[] getFirst()
     {
-        return (byte[])baseList.getFirst();
+        if (baseList.isEmpty())
+        {
+            throw new NoSuchElementException();
+        }
+
+        sort();
+
+        return (byte[])baseList.get(0);
     }
 
     public void add(byte[] hash)
     {
-        if (baseList.size() == 0)
-        {
-             baseList.addFirst(hash);
-        }
-        else
-        {
-            if (hashComp.compare(hash, baseList.get(0)) < 0)
-            {
-                baseList.addFirst(hash);
-            }
-            else
-            {
-                int index = 1;
-                while(index < baseList.size() && hashComp.compare(baseList.get(index), hash) <= 0)
-                {
-                    index++;
-                }
-
-                if (index == baseList.size())
-                {
-                    baseList.add(hash);
-                }
-                else
-                {
-                    baseList.add(index, hash);
-                }
-            }
-        }
+        baseList.add(hash);
+        sorted = false;
     }
 
     public int size()
@@ -62,6 +47,17 @@ public class SortedHashList
 
     public List<byte[]> toList()
     {
+        sort();
+
         return new ArrayList<byte[]>(baseList);
     }
+
+    private void sort()
+    {
+        if (!sorted)
+        {
+            Collections.sort(baseList, hashComp);
+            sorted = true;
+        }
+    }
 }
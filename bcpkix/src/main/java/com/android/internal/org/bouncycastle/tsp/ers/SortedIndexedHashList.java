@@ -1,9 +1,10 @@
 package com.android.internal.org.bouncycastle.tsp.ers;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * A sorting list - byte[] are sorted in ascending order.
@@ -12,7 +13,18 @@ public class SortedIndexedHashList
 {
     private static final Comparator<byte[]> hashComp = new ByteArrayComparator();
 
-    private final LinkedList<IndexedHash> baseList = new LinkedList<IndexedHash>();
+    private static final Comparator<IndexedHash> indexedHashComp = new Comparator<IndexedHash>()
+    {
+        public int compare(IndexedHash l, IndexedHash r)
+        {
+            return hashComp.compare(l.digest, r.digest);
+        }
+    };
+
+    // entries are appended and only sorted when the list is read, a stable sort keeps equal
+    // entries in the order they were added.
+    private final ArrayList<IndexedHash> baseList = new ArrayList<IndexedHash>();
+    private boolean sorted = true;
 
     public SortedIndexedHashList()
     {
@@ -20,39 +32,20 @@ public class SortedIndexedHashList
 
     public IndexedHash getFirst()
     {
-        return (IndexedHash)baseList.getFirst();
+        if (baseList.isEmpty())
+        {
+            throw new NoSuchElementException();
+        }
+
+        sort();
+
+        return (IndexedHash)baseList.get(0);
     }
 
     public void add(IndexedHash hash)
     {
-        if (baseList.size() == 0)
-        {
-             baseList.addFirst(hash);
-        }
-        else
-        {
-            if (hashComp.compare(hash.digest, ((IndexedHash)baseList.get(0)).digest) < 0)
-            {
-                baseList.addFirst(hash);
-            }
-            else
-            {
-                int index = 1;
-                while(index < baseList.size() && hashComp.compare(((IndexedHash)baseList.get(index)).digest, hash.digest) <= 0)
-                {
-                    index++;
-                }
-
-                if (index == baseList.size())
-                {
-                    baseList.add(hash);
-                }
-                else
-                {
-                    baseList.add(index, hash);
-                }
-            }
-        }
+        baseList.add(hash);
+        sorted = false;
     }
 
     public int size()
@@ -62,6 +55,17 @@ public class SortedIndexedHashList
 
     public List<IndexedHash> toList()
     {
+        sort();
+
         return new ArrayList<IndexedHash>(baseList);
     }
+
+    private void sort()
+    {
+        if (!sorted)
+        {
+            Collections.sort(baseList, indexedHashComp);
+            sorted = true;
+        }
+    }
 }
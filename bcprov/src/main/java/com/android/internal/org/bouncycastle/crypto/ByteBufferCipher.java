@@ -0,0 +1,24 @@
+package com.android.internal.org.bouncycastle.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stream, buffered and AEAD ciphers which can read their input from, and write their output to, a ByteBuffer,
+ * including direct buffers, implement this.
+ */
+public interface ByteBufferCipher
+{
+    /**
+     * process the remaining bytes in the input buffer, writing any output produced to the output buffer. The
+     * position of the input buffer is advanced to its limit and the position of the output buffer by the
+     * number of bytes written.
+     *
+     * @param input the buffer containing the input data.
+     * @param output the buffer the output data will be written to.
+     * @return the number of bytes written to output.
+     * @exception DataLengthException if the output buffer is too small.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     */
+    public int processBytes(ByteBuffer input, ByteBuffer output)
+        throws DataLengthException, IllegalStateException;
+}
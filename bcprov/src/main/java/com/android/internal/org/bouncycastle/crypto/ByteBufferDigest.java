@@ -0,0 +1,18 @@
+package com.android.internal.org.bouncycastle.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Digests which can take their input directly from a ByteBuffer, including direct buffers, implement this.
+ */
+public interface ByteBufferDigest
+    extends Digest
+{
+    /**
+     * update the message digest with the remaining bytes in the input buffer, advancing its position
+     * to its limit.
+     *
+     * @param input the buffer containing the data.
+     */
+    public void update(ByteBuffer input);
+}
@@ -0,0 +1,19 @@
+package com.android.internal.org.bouncycastle.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * MACs which can take their input directly from a ByteBuffer, including direct buffers, implement this.
+ */
+public interface ByteBufferMac
+    extends Mac
+{
+    /**
+     * add the remaining bytes in the input buffer to the mac, advancing its position to its limit.
+     *
+     * @param input the buffer containing the data.
+     * @exception IllegalStateException if the MAC is not initialised.
+     */
+    public void update(ByteBuffer input)
+        throws IllegalStateException;
+}
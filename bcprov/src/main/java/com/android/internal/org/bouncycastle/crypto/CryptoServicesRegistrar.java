@@ -33,7 +33,9 @@ public final class CryptoServicesRegistrar
     private static final Permission CanSetConstraints = new CryptoServicesPermission(CryptoServicesPermission.CONSTRAINTS);
 
     private static final ThreadLocal<Map<String, Object[]>> threadProperties = new ThreadLocal<Map<String, Object[]>>();
-    private static final Map<String, Object[]> globalProperties = Collections.synchronizedMap(new HashMap<String, Object[]>());
+    private static final Object globalPropertiesLock = new Object();
+    // immutable snapshot, replaced on update so look ups do not need to synchronize.
+    private static volatile Map<String, Object[]> globalProperties = Collections.emptyMap();
     private static final SecureRandomProvider defaultRandomProviderImpl = new ThreadLocalSecureRandomProvider();
 
     private static final CryptoServicesConstraints noConstraintsImpl = new CryptoServicesConstraints()
@@ -47,6 +49,8 @@ public final class CryptoServicesRegistrar
     private static final AtomicReference<SecureRandomProvider> defaultSecureRandomProvider = new AtomicReference<SecureRandomProvider>();
     private static final boolean preconfiguredConstraints;
     private static final AtomicReference<CryptoServicesConstraints> servicesConstraints = new AtomicReference<CryptoServicesConstraints>();
+    // mirrors servicesConstraints so the common "anything goes" case costs a single volatile read.
+    private static volatile boolean constraintsEnabled;
 
     static
     {
@@ -111,8 +115,8 @@ public final class CryptoServicesRegistrar
         localSetGlobalProperty(Property.DSA_DEFAULT_PARAMS, def512Params, def768Params, def1024Params, def2048Params);
         localSetGlobalProperty(Property.DH_DEFAULT_PARAMS, toDH(def512Params), toDH(def768Params), toDH(def1024Params), toDH(def2048Params));
 
-        servicesConstraints.set(getDefaultConstraints());
-        preconfiguredConstraints = (servicesConstraints.get() != noConstraintsImpl);
+        localSetServicesConstraints(getDefaultConstraints());
+        preconfiguredConstraints = constraintsEnabled;
     }
 
     private CryptoServicesRegistrar()
@@ -198,7 +202,22 @@ public final class CryptoServicesRegistrar
      */
     public static void checkConstraints(CryptoServiceProperties cryptoService)
     {
-        servicesConstraints.get().check(cryptoService);
+        if (constraintsEnabled)
+        {
+            servicesConstraints.get().check(cryptoService);
+        }
+    }
+
+    /**
+     * Return true if algorithm/services constraints are currently installed. Callers on performance
+     * sensitive paths can use this to avoid building a CryptoServiceProperties object that would
+     * only be passed to checkConstraints() and then discarded.
+     *
+     * @return true if constraints are in force, false if anything goes.
+     */
+    public static boolean hasEnabledConstraints()
+    {
+        return constraintsEnabled;
     }
 
     /**
@@ -214,7 +233,7 @@ public final class CryptoServicesRegistrar
         {
             if (Properties.isOverrideSet("org.bouncycastle.constraints.allow_override"))
             {
-                servicesConstraints.set(newConstraints);
+                localSetServicesConstraints(newConstraints);
             }
             else
             {
@@ -224,7 +243,16 @@ public final class CryptoServicesRegistrar
         else
         {
             // TODO: should this only be allowed once?
-            servicesConstraints.set(newConstraints);
+            localSetServicesConstraints(newConstraints);
+        }
+    }
+
+    private static void localSetServicesConstraints(CryptoServicesConstraints constraints)
+    {
+        synchronized (servicesConstraints)
+        {
+            servicesConstraints.set(constraints);
+            constraintsEnabled = (constraints != noConstraintsImpl);
         }
     }
 
@@ -390,7 +418,14 @@ public final class CryptoServicesRegistrar
         // set the property for the current thread as well to avoid mass confusion
         localSetThread(property, propertyValue);
 
-        globalProperties.put(property.name, propertyValue);
+        synchronized (globalPropertiesLock)
+        {
+            Map<String, Object[]> properties = new HashMap<String, Object[]>(globalProperties);
+
+            properties.put(property.name, propertyValue);
+
+            globalProperties = Collections.unmodifiableMap(properties);
+        }
     }
 
     /**
@@ -407,7 +442,21 @@ public final class CryptoServicesRegistrar
         // clear the property for the current thread as well to avoid confusion
         localClearThreadProperty(property);
 
-        return (T[])globalProperties.remove(property.name);
+        synchronized (globalPropertiesLock)
+        {
+            if (!globalProperties.containsKey(property.name))
+            {
+                return null;
+            }
+
+            Map<String, Object[]> properties = new HashMap<String, Object[]>(globalProperties);
+
+            T[] values = (T[])properties.remove(property.name);
+
+            globalProperties = Collections.unmodifiableMap(properties);
+
+            return values;
+        }
     }
 
     /**
@@ -1,5 +1,8 @@
 package com.android.internal.org.bouncycastle.crypto;
 
+import java.nio.ByteBuffer;
+
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 
 /**
  * A wrapper class that allows block ciphers to be used to process data in
@@ -13,6 +16,7 @@ package com.android.internal.org.bouncycastle.crypto;
  */
 public class DefaultBufferedBlockCipher
     extends BufferedBlockCipher
+    implements ByteBufferCipher
 {
     protected byte[]        buf;
     protected int           bufOff;
@@ -283,6 +287,72 @@ public class DefaultBufferedBlockCipher
         return resultLen;
     }
 
+    /**
+     * process the bytes remaining in a buffer, producing output if necessary. Where the underlying
+     * cipher can work on ByteBuffers itself whole blocks are passed straight through to it, otherwise
+     * the data is staged through a byte array. Subclasses, which hold back or rework the last blocks,
+     * always have the data staged through their byte array processBytes().
+     *
+     * @param in the buffer containing the input data.
+     * @param out the buffer for any output that might be produced.
+     * @return the number of output bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     */
+    public int processBytes(
+        ByteBuffer  in,
+        ByteBuffer  out)
+        throws DataLengthException, IllegalStateException
+    {
+        if (getClass() != DefaultBufferedBlockCipher.class || !(cipher instanceof ByteBufferCipher))
+        {
+            return ByteBuffers.processBytes(this, in, out);
+        }
+
+        int len = in.remaining();
+        int length = getUpdateOutputSize(len);
+
+        if (length > out.remaining())
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        ByteBufferCipher bbCipher = (ByteBufferCipher)cipher;
+        int resultLen = 0;
+        int gapLen = buf.length - bufOff;
+
+        if (bufOff != 0 && len >= gapLen)
+        {
+            in.get(buf, bufOff, gapLen);
+
+            resultLen += bbCipher.processBytes(ByteBuffer.wrap(buf), out);
+
+            bufOff = 0;
+            len -= gapLen;
+        }
+
+        if (bufOff == 0)
+        {
+            int blocksLen = len - len % buf.length;
+            if (blocksLen > 0)
+            {
+                ByteBuffer blocks = in.duplicate();
+                blocks.limit(blocks.position() + blocksLen);
+
+                resultLen += bbCipher.processBytes(blocks, out);
+
+                in.position(blocks.position());
+                len -= blocksLen;
+            }
+        }
+
+        in.get(buf, bufOff, len);
+
+        bufOff += len;
+
+        return resultLen;
+    }
+
     /**
      * Process the last block in the buffer.
      *
@@ -17,7 +17,6 @@ public abstract class DefaultMultiBlockCipher
     {
 
         // TODO check if the underlying cipher supports the multiblock interface and call it directly?
-
         int resultLen = 0;
         int blockSize = this.getMultiBlockSize();
         
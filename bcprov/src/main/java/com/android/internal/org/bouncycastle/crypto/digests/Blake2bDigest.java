@@ -24,7 +24,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
  */
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.util.Arrays;
@@ -172,7 +171,7 @@ public class Blake2bDigest
         buffer = new byte[BLOCK_LENGTH_BYTES];
         keyLength = 0;
         this.digestLength = digestSize / 8;
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestSize, purpose));
+        Utils.checkConstraints(this, digestSize, purpose);
         init();
     }
 
@@ -210,7 +209,7 @@ public class Blake2bDigest
         this.purpose = purpose;
         digestLength = 64;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestLength*8, purpose));
+        Utils.checkConstraints(this, digestLength*8, purpose);
         init();
     }
 
@@ -277,7 +276,7 @@ public class Blake2bDigest
             bufferPos = BLOCK_LENGTH_BYTES; // zero padding
         }
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestLength*8, purpose));
+        Utils.checkConstraints(this, digestLength*8, purpose);
         init();
     }
 
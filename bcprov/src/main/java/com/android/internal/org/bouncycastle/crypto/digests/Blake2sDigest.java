@@ -24,7 +24,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
  */
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.util.Arrays;
@@ -195,7 +194,7 @@ public class Blake2sDigest
         digestLength = digestBits / 8;
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestBits, purpose));
+        Utils.checkConstraints(this, digestBits, purpose);
         init(null, null, null);
     }
 
@@ -216,7 +215,7 @@ public class Blake2sDigest
     public Blake2sDigest(byte[] key, CryptoServicePurpose purpose)
     {
         this.purpose = purpose;
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, key.length*8, purpose));
+        Utils.checkConstraints(this, key.length*8, purpose);
         init(null, null, key);
     }
 
@@ -249,7 +248,7 @@ public class Blake2sDigest
         digestLength = digestBytes;
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestBytes*8, purpose));
+        Utils.checkConstraints(this, digestBytes*8, purpose);
         init(salt, personalization, key);
     }
 
@@ -259,7 +258,7 @@ public class Blake2sDigest
         digestLength = digestBytes;
         nodeOffset = offset;
         this.purpose = purpose;
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestBytes*8, purpose));
+        Utils.checkConstraints(this, digestBytes*8, purpose);
         init(salt, personalization, key);
     }
 
@@ -279,7 +278,7 @@ public class Blake2sDigest
         nodeDepth = 0;
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digestBytes*8, purpose));
+        Utils.checkConstraints(this, digestBytes*8, purpose);
         init(null, null, null);
     }
     Blake2sDigest (byte[] key, byte[] param)
@@ -1,10 +1,9 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
-import java.util.Iterator;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.crypto.Xof;
@@ -16,6 +15,11 @@ import com.android.internal.org.bouncycastle.util.Pack;
 
 /**
  * Blake3 implementation.
+ * <p>
+ * Whole chunks passed to update() in a single call are compressed together. If a ForkJoinPool is
+ * provided, aligned subtrees of at least 32 KiB in such a call are hashed as concurrent tasks on the pool.
+ * The output is the same either way.
+ * </p>
  */
 public class Blake3Digest
     implements ExtendedDigest, Memoable, Xof
@@ -45,6 +49,16 @@ public class Blake3Digest
      */
     private static final int CHUNKLEN = 1024;
 
+    /**
+     * Maximum depth of the chaining stack.
+     */
+    private static final int MAXDEPTH = 54;
+
+    /**
+     * Level of the subtrees hashed as a single task (16 chunks).
+     */
+    private static final int TASKLEVEL = 4;
+
     /**
      * ChunkStart Flag.
      */
@@ -165,6 +179,26 @@ public class Blake3Digest
      */
     private static final byte[] SIGMA = {2, 6, 3, 10, 7, 0, 4, 13, 1, 11, 12, 5, 9, 14, 15, 8};
 
+    /**
+     * Message word indices for each round.
+     */
+    private static final byte[][] SCHEDULE = new byte[ROUNDS][NUMWORDS << 1];
+
+    static
+    {
+        for (byte i = 0; i < SCHEDULE[0].length; i++)
+        {
+            SCHEDULE[0][i] = i;
+        }
+        for (int round = 1; round < ROUNDS; round++)
+        {
+            for (int i = 0; i < SCHEDULE[round].length; i++)
+            {
+                SCHEDULE[round][i] = SIGMA[SCHEDULE[round - 1][i]];
+            }
+        }
+    }
+
     /**
      * Blake3 Initialization Vector.
      */
@@ -205,7 +239,17 @@ public class Blake3Digest
     /**
      * The chainingStack.
      */
-    private final Stack theStack = new Stack();
+    private final int[][] theStack = new int[MAXDEPTH][];
+
+    /**
+     * The # of chaining values on the stack.
+     */
+    private int theStackDepth;
+
+    /**
+     * The pool for hashing subtrees, null if hashing on the calling thread.
+     */
+    private final ForkJoinPool thePool;
 
     /**
      * The default digestLength.
@@ -283,11 +327,24 @@ public class Blake3Digest
      * @param purpose usage purpose.
      */
     public Blake3Digest(final int pDigestSize, CryptoServicePurpose purpose)
+    {
+        this(pDigestSize, purpose, null);
+    }
+
+    /**
+     * Base constructor with purpose and a pool for hashing large updates.
+     *
+     * @param pDigestSize size of digest (in bits)
+     * @param purpose usage purpose.
+     * @param pPool the pool to hash subtrees of large updates on, null to hash on the calling thread.
+     */
+    public Blake3Digest(final int pDigestSize, CryptoServicePurpose purpose, final ForkJoinPool pPool)
     {
         this.purpose = purpose;
+        thePool = pPool;
         theDigestLen = pDigestSize / 8;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize() * 8, purpose));
+        Utils.checkConstraints(this, getDigestSize() * 8, purpose);
 
         init(null);
     }
@@ -302,6 +359,7 @@ public class Blake3Digest
         /* Copy default digest length */
         theDigestLen = pSource.theDigestLen;
         purpose = pSource.purpose;
+        thePool = pSource.thePool;
 
         /* Initialise from source */
         reset(pSource);
@@ -435,10 +493,26 @@ public class Blake3Digest
             Arrays.fill(theBuffer, (byte)0);
         }
 
-        /* process all blocks except the last one */
-        int messagePos;
+        /* process blocks up to the end of the current chunk */
+        int messagePos = pOffset + remainingLen;
         final int blockWiseLastPos = pOffset + pLen - BLOCKLEN;
-        for (messagePos = pOffset + remainingLen; messagePos < blockWiseLastPos; messagePos += BLOCKLEN)
+        while (theCurrBytes != 0 && messagePos < blockWiseLastPos)
+        {
+            /* Process the buffer */
+            compressBlock(pMessage, messagePos);
+            messagePos += BLOCKLEN;
+        }
+
+        /* process whole chunks, keeping back at least one byte */
+        final int myChunks = (pOffset + pLen - messagePos - 1) / CHUNKLEN;
+        if (theCurrBytes == 0 && myChunks > 0)
+        {
+            compressChunks(pMessage, messagePos, myChunks);
+            messagePos += myChunks * CHUNKLEN;
+        }
+
+        /* process all blocks except the last one */
+        for (; messagePos < blockWiseLastPos; messagePos += BLOCKLEN)
         {
             /* Process the buffer */
             compressBlock(pMessage, messagePos);
@@ -532,6 +606,7 @@ public class Blake3Digest
     public void reset()
     {
         resetBlockCount();
+        theStackDepth = 0;
         thePos = 0;
         outputting = false;
         Arrays.fill(theBuffer, (byte)0);
@@ -559,10 +634,10 @@ public class Blake3Digest
         System.arraycopy(mySource.theM, 0, theM, 0, theM.length);
 
         /* Copy stack */
-        theStack.clear();
-        for (Iterator it = mySource.theStack.iterator(); it.hasNext(); )
+        theStackDepth = 0;
+        while (theStackDepth < mySource.theStackDepth)
         {
-            theStack.push(Arrays.clone((int[])it.next()));
+            pushStack(mySource.theStack[theStackDepth]);
         }
 
         /* Copy buffer */
@@ -592,17 +667,59 @@ public class Blake3Digest
         /* Adjust stack if we have completed a block */
         if (theCurrBytes == 0)
         {
-            adjustStack();
+            adjustStack(0);
+        }
+    }
+
+    /**
+     * Compress whole chunks of the message, starting on a chunk boundary.
+     *
+     * @param pMessage the message buffer
+     * @param pMsgPos  the position within the message buffer
+     * @param pChunks  the number of chunks
+     */
+    private void compressChunks(final byte[] pMessage,
+                                int pMsgPos,
+                                int pChunks)
+    {
+        while (pChunks > 0)
+        {
+            /* Find the largest subtree that starts here and fits, if we can hash in parallel */
+            int myLevel = 0;
+            if (thePool != null)
+            {
+                myLevel = Math.min(Long.numberOfTrailingZeros(theCounter), 31 - Integers.numberOfLeadingZeros(pChunks));
+            }
+
+            if (myLevel > TASKLEVEL)
+            {
+                final int[] myCV = thePool.invoke(new SubtreeTask(theK, theMode, pMessage, pMsgPos, theCounter, myLevel));
+                System.arraycopy(myCV, 0, theChaining, 0, NUMWORDS);
+            }
+            else
+            {
+                myLevel = 0;
+                chunkChaining(theK, theMode, pMessage, pMsgPos, theCounter, theM, theChaining);
+            }
+
+            /* Add the subtree to the stack */
+            theCounter += 1L << myLevel;
+            adjustStack(myLevel);
+
+            pMsgPos += CHUNKLEN << myLevel;
+            pChunks -= 1 << myLevel;
         }
     }
 
     /**
      * Adjust the stack.
+     *
+     * @param pLevel the level of the subtree just completed
      */
-    private void adjustStack()
+    private void adjustStack(final int pLevel)
     {
         /* Loop to combine blocks */
-        long myCount = theCounter;
+        long myCount = theCounter >>> pLevel;
         while (myCount > 0)
         {
             /* Break loop if we are not combining */
@@ -611,21 +728,29 @@ public class Blake3Digest
                 break;
             }
 
-            /* Build the message to be hashed */
-            final int[] myLeft = (int[])theStack.pop();
-            System.arraycopy(myLeft, 0, theM, 0, NUMWORDS);
-            System.arraycopy(theChaining, 0, theM, NUMWORDS, NUMWORDS);
-
             /* Create parent block */
-            initParentBlock();
-            compress();
+            parentChaining(theK, theMode, theStack[--theStackDepth], theChaining, theM, theChaining);
 
             /* Next block */
             myCount >>= 1;
         }
 
         /* Add back to the stack */
-        theStack.push(Arrays.copyOf(theChaining, NUMWORDS));
+        pushStack(theChaining);
+    }
+
+    /**
+     * Push a chaining value onto the stack.
+     *
+     * @param pChaining the chaining value
+     */
+    private void pushStack(final int[] pChaining)
+    {
+        if (theStack[theStackDepth] == null)
+        {
+            theStack[theStackDepth] = new int[NUMWORDS];
+        }
+        System.arraycopy(pChaining, 0, theStack[theStackDepth++], 0, NUMWORDS);
     }
 
     /**
@@ -650,16 +775,16 @@ public class Blake3Digest
     private void processStack()
     {
         /* Finalise stack */
-        while (!theStack.isEmpty())
+        while (theStackDepth > 0)
         {
             /* Build the message to be hashed */
-            final int[] myLeft = (int[])theStack.pop();
+            final int[] myLeft = theStack[--theStackDepth];
             System.arraycopy(myLeft, 0, theM, 0, NUMWORDS);
             System.arraycopy(theChaining, 0, theM, NUMWORDS, NUMWORDS);
 
             /* Create parent block */
             initParentBlock();
-            if (theStack.isEmpty())
+            if (theStackDepth == 0)
             {
                 setRoot();
             }
@@ -856,7 +981,7 @@ public class Blake3Digest
         }
 
         /* If we are single chunk */
-        if (pFinal && theStack.isEmpty())
+        if (pFinal && theStackDepth == 0)
         {
             setRoot();
         }
@@ -928,4 +1053,250 @@ public class Blake3Digest
         System.arraycopy(theV, 0, theChaining, 0, NUMWORDS);
     }
 
+    /**
+     * Calculate the chaining value of a whole chunk.
+     *
+     * @param pKey      the key
+     * @param pMode     the mode
+     * @param pMessage  the message buffer
+     * @param pMsgPos   the position of the chunk within the message buffer
+     * @param pCounter  the chunk counter
+     * @param pM        the message word buffer
+     * @param pChaining the chaining value output
+     */
+    private static void chunkChaining(final int[] pKey,
+                                      final int pMode,
+                                      final byte[] pMessage,
+                                      final int pMsgPos,
+                                      final long pCounter,
+                                      final int[] pM,
+                                      final int[] pChaining)
+    {
+        System.arraycopy(pKey, 0, pChaining, 0, NUMWORDS);
+
+        final int myLast = CHUNKLEN - BLOCKLEN;
+        for (int i = 0; i <= myLast; i += BLOCKLEN)
+        {
+            Pack.littleEndianToInt(pMessage, pMsgPos + i, pM);
+            final int myFlags = pMode
+                + (i == 0 ? CHUNKSTART : 0)
+                + (i == myLast ? CHUNKEND : 0);
+            compress(pChaining, pM, pCounter, BLOCKLEN, myFlags, pChaining);
+        }
+    }
+
+    /**
+     * Calculate the chaining value of a parent node.
+     *
+     * @param pKey      the key
+     * @param pMode     the mode
+     * @param pLeft     the left child chaining value
+     * @param pRight    the right child chaining value
+     * @param pM        the message word buffer
+     * @param pChaining the chaining value output
+     */
+    private static void parentChaining(final int[] pKey,
+                                       final int pMode,
+                                       final int[] pLeft,
+                                       final int[] pRight,
+                                       final int[] pM,
+                                       final int[] pChaining)
+    {
+        System.arraycopy(pLeft, 0, pM, 0, NUMWORDS);
+        System.arraycopy(pRight, 0, pM, NUMWORDS, NUMWORDS);
+        compress(pKey, pM, 0, BLOCKLEN, pMode | PARENT, pChaining);
+    }
+
+    /**
+     * Calculate the chaining value of a subtree of whole chunks.
+     *
+     * @param pKey      the key
+     * @param pMode     the mode
+     * @param pMessage  the message buffer
+     * @param pMsgPos   the position of the subtree within the message buffer
+     * @param pCounter  the counter of the first chunk
+     * @param pLevel    the level of the subtree (it holds 2^pLevel chunks)
+     * @param pM        the message word buffer
+     * @param pChaining the chaining value output
+     */
+    private static void subtreeChaining(final int[] pKey,
+                                        final int pMode,
+                                        final byte[] pMessage,
+                                        final int pMsgPos,
+                                        final long pCounter,
+                                        final int pLevel,
+                                        final int[] pM,
+                                        final int[] pChaining)
+    {
+        if (pLevel == 0)
+        {
+            chunkChaining(pKey, pMode, pMessage, pMsgPos, pCounter, pM, pChaining);
+            return;
+        }
+
+        final int[] myLeft = new int[NUMWORDS];
+        subtreeChaining(pKey, pMode, pMessage, pMsgPos, pCounter, pLevel - 1, pM, myLeft);
+        subtreeChaining(pKey, pMode, pMessage, pMsgPos + (CHUNKLEN << (pLevel - 1)),
+            pCounter + (1L << (pLevel - 1)), pLevel - 1, pM, pChaining);
+        parentChaining(pKey, pMode, myLeft, pChaining, pM, pChaining);
+    }
+
+    /**
+     * Compress a block into a chaining value, keeping the state in local variables.
+     *
+     * @param pChaining the input chaining value
+     * @param pM        the message words
+     * @param pCounter  the counter
+     * @param pDataLen  the data length
+     * @param pFlags    the flags
+     * @param pOutput   the output chaining value (may be the same as pChaining)
+     */
+    private static void compress(final int[] pChaining,
+                                 final int[] pM,
+                                 final long pCounter,
+                                 final int pDataLen,
+                                 final int pFlags,
+                                 final int[] pOutput)
+    {
+        int v0 = pChaining[0], v1 = pChaining[1], v2 = pChaining[2], v3 = pChaining[3];
+        int v4 = pChaining[4], v5 = pChaining[5], v6 = pChaining[6], v7 = pChaining[7];
+        int v8 = IV[0], v9 = IV[1], v10 = IV[2], v11 = IV[3];
+        int v12 = (int)pCounter, v13 = (int)(pCounter >> Integers.SIZE), v14 = pDataLen, v15 = pFlags;
+
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            final byte[] s = SCHEDULE[round];
+
+            /* Apply to columns of V */
+            v0 += v4 + pM[s[0]];
+            v12 = Integers.rotateRight(v12 ^ v0, 16);
+            v8 += v12;
+            v4 = Integers.rotateRight(v4 ^ v8, 12);
+            v0 += v4 + pM[s[1]];
+            v12 = Integers.rotateRight(v12 ^ v0, 8);
+            v8 += v12;
+            v4 = Integers.rotateRight(v4 ^ v8, 7);
+            v1 += v5 + pM[s[2]];
+            v13 = Integers.rotateRight(v13 ^ v1, 16);
+            v9 += v13;
+            v5 = Integers.rotateRight(v5 ^ v9, 12);
+            v1 += v5 + pM[s[3]];
+            v13 = Integers.rotateRight(v13 ^ v1, 8);
+            v9 += v13;
+            v5 = Integers.rotateRight(v5 ^ v9, 7);
+            v2 += v6 + pM[s[4]];
+            v14 = Integers.rotateRight(v14 ^ v2, 16);
+            v10 += v14;
+            v6 = Integers.rotateRight(v6 ^ v10, 12);
+            v2 += v6 + pM[s[5]];
+            v14 = Integers.rotateRight(v14 ^ v2, 8);
+            v10 += v14;
+            v6 = Integers.rotateRight(v6 ^ v10, 7);
+            v3 += v7 + pM[s[6]];
+            v15 = Integers.rotateRight(v15 ^ v3, 16);
+            v11 += v15;
+            v7 = Integers.rotateRight(v7 ^ v11, 12);
+            v3 += v7 + pM[s[7]];
+            v15 = Integers.rotateRight(v15 ^ v3, 8);
+            v11 += v15;
+            v7 = Integers.rotateRight(v7 ^ v11, 7);
+
+            /* Apply to diagonals of V */
+            v0 += v5 + pM[s[8]];
+            v15 = Integers.rotateRight(v15 ^ v0, 16);
+            v10 += v15;
+            v5 = Integers.rotateRight(v5 ^ v10, 12);
+            v0 += v5 + pM[s[9]];
+            v15 = Integers.rotateRight(v15 ^ v0, 8);
+            v10 += v15;
+            v5 = Integers.rotateRight(v5 ^ v10, 7);
+            v1 += v6 + pM[s[10]];
+            v12 = Integers.rotateRight(v12 ^ v1, 16);
+            v11 += v12;
+            v6 = Integers.rotateRight(v6 ^ v11, 12);
+            v1 += v6 + pM[s[11]];
+            v12 = Integers.rotateRight(v12 ^ v1, 8);
+            v11 += v12;
+            v6 = Integers.rotateRight(v6 ^ v11, 7);
+            v2 += v7 + pM[s[12]];
+            v13 = Integers.rotateRight(v13 ^ v2, 16);
+            v8 += v13;
+            v7 = Integers.rotateRight(v7 ^ v8, 12);
+            v2 += v7 + pM[s[13]];
+            v13 = Integers.rotateRight(v13 ^ v2, 8);
+            v8 += v13;
+            v7 = Integers.rotateRight(v7 ^ v8, 7);
+            v3 += v4 + pM[s[14]];
+            v14 = Integers.rotateRight(v14 ^ v3, 16);
+            v9 += v14;
+            v4 = Integers.rotateRight(v4 ^ v9, 12);
+            v3 += v4 + pM[s[15]];
+            v14 = Integers.rotateRight(v14 ^ v3, 8);
+            v9 += v14;
+            v4 = Integers.rotateRight(v4 ^ v9, 7);
+        }
+
+        pOutput[0] = v0 ^ v8;
+        pOutput[1] = v1 ^ v9;
+        pOutput[2] = v2 ^ v10;
+        pOutput[3] = v3 ^ v11;
+        pOutput[4] = v4 ^ v12;
+        pOutput[5] = v5 ^ v13;
+        pOutput[6] = v6 ^ v14;
+        pOutput[7] = v7 ^ v15;
+    }
+
+    /**
+     * Task calculating the chaining value of a subtree, splitting it between the pool threads.
+     */
+    private static class SubtreeTask
+        extends RecursiveTask<int[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] theKey;
+        private final int theTaskMode;
+        private final byte[] theMessage;
+        private final int theMsgPos;
+        private final long theTaskCounter;
+        private final int theLevel;
+
+        SubtreeTask(final int[] pKey,
+                    final int pMode,
+                    final byte[] pMessage,
+                    final int pMsgPos,
+                    final long pCounter,
+                    final int pLevel)
+        {
+            theKey = pKey;
+            theTaskMode = pMode;
+            theMessage = pMessage;
+            theMsgPos = pMsgPos;
+            theTaskCounter = pCounter;
+            theLevel = pLevel;
+        }
+
+        protected int[] compute()
+        {
+            final int[] myM = new int[NUMWORDS << 1];
+            final int[] myChaining = new int[NUMWORDS];
+
+            if (theLevel <= TASKLEVEL)
+            {
+                subtreeChaining(theKey, theTaskMode, theMessage, theMsgPos, theTaskCounter, theLevel, myM, myChaining);
+                return myChaining;
+            }
+
+            final int myHalf = theLevel - 1;
+            final SubtreeTask myLeft = new SubtreeTask(theKey, theTaskMode, theMessage, theMsgPos,
+                theTaskCounter, myHalf);
+            final SubtreeTask myRight = new SubtreeTask(theKey, theTaskMode, theMessage, theMsgPos + (CHUNKLEN << myHalf),
+                theTaskCounter + (1L << myHalf), myHalf);
+
+            myLeft.fork();
+            final int[] myRightChaining = myRight.compute();
+            parentChaining(theKey, theTaskMode, myLeft.join(), myRightChaining, myM, myChaining);
+            return myChaining;
+        }
+    }
 }
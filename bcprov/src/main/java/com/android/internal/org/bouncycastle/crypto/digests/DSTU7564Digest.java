@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Memoable;
@@ -51,7 +50,7 @@ public class DSTU7564Digest
 
         copyIn(digest);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
     }
 
     private void copyIn(DSTU7564Digest digest)
@@ -117,7 +116,7 @@ public class DSTU7564Digest
 
         this.buf = new byte[blockSize];
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
     }
 
     public String getAlgorithmName()
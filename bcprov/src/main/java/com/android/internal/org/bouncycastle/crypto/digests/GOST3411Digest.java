@@ -3,7 +3,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 import com.android.internal.org.bouncycastle.crypto.BlockCipher;
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.crypto.engines.GOST28147Engine;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
@@ -45,7 +44,7 @@ public class GOST3411Digest
     {
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
 
         sBox = GOST28147Engine.getSBox("D-A");
         cipher.init(true, new ParametersWithSBox(null, sBox));
@@ -70,7 +69,7 @@ public class GOST3411Digest
     {
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
 
         sBox = Arrays.clone(sBoxParam);
         cipher.init(true, new ParametersWithSBox(null, sBox));
@@ -86,7 +85,7 @@ public class GOST3411Digest
     {
         this.purpose = t.purpose;
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
 
         reset(t);
     }
@@ -1,7 +1,6 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Bytes;
@@ -55,7 +54,7 @@ public abstract class GOST3411_2012Digest
         System.arraycopy(IV, 0, this.IV, 0, 64);
         System.arraycopy(IV, 0, h, 0, 64);
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize()*4, purpose));
+        Utils.checkConstraints(this, getDigestSize()*4, purpose);
     }
 
     public int getByteLength()
@@ -1,5 +1,8 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+
+import com.android.internal.org.bouncycastle.crypto.ByteBufferDigest;
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
@@ -11,7 +14,7 @@ import com.android.internal.org.bouncycastle.util.Pack;
  * "Handbook of Applied Cryptography", pages 344 - 347.
  */
 public abstract class GeneralDigest
-    implements ExtendedDigest, Memoable
+    implements ExtendedDigest, ByteBufferDigest, Memoable
 {
     private static final int BYTE_LENGTH = 64;
 
@@ -126,6 +129,44 @@ public abstract class GeneralDigest
         byteCount += len;
     }
 
+    public void update(
+        ByteBuffer  in)
+    {
+        if (in.hasArray())
+        {
+            int len = in.remaining();
+            update(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.limit());
+            return;
+        }
+
+        //
+        // fill the current word
+        //
+        while (xBufOff != 0 && in.hasRemaining())
+        {
+            update(in.get());
+        }
+
+        //
+        // process whole words.
+        //
+        int words = in.remaining() >>> 2;
+        if (words > 0)
+        {
+            processWords(in, words);
+            byteCount += (long)words << 2;
+        }
+
+        //
+        // load in the remainder.
+        //
+        while (in.hasRemaining())
+        {
+            update(in.get());
+        }
+    }
+
     public void finish()
     {
         long    bitLength = (byteCount << 3);
@@ -170,6 +211,20 @@ public abstract class GeneralDigest
     
     protected abstract void processWord(byte[] in, int inOff);
 
+    /**
+     * Process count whole words from the current position of in, advancing the position past them. Digests
+     * which can read words straight out of a ByteBuffer should override this, by default each word is
+     * copied out to the word buffer and passed to processWord().
+     */
+    protected void processWords(ByteBuffer in, int count)
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            in.get(xBuf, 0, 4);
+            processWord(xBuf, 0);
+        }
+    }
+
     protected abstract void processLength(long bitLength);
 
     protected abstract void processBlock();
@@ -1,7 +1,6 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Bytes;
 
@@ -88,7 +87,7 @@ public class Haraka256Digest
 
         this.buffer = new byte[32];
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize()*4, purpose));
+        Utils.checkConstraints(this, getDigestSize()*4, purpose);
     }
 
     public Haraka256Digest(Haraka256Digest digest)
@@ -98,7 +97,7 @@ public class Haraka256Digest
         this.buffer = Arrays.clone(digest.buffer);
         this.off = digest.off;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize()*4, purpose));
+        Utils.checkConstraints(this, getDigestSize()*4, purpose);
     }
 
     public String getAlgorithmName()
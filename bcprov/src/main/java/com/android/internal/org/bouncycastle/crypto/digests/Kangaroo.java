@@ -1,12 +1,19 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
+import java.util.concurrent.Executor;
+
 import com.android.internal.org.bouncycastle.crypto.*;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Bytes;
 import com.android.internal.org.bouncycastle.util.Pack;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * Kangaroo.
+ * <p>
+ * If an executor is provided, the whole leaves passed to each update() call are hashed as concurrent tasks on it,
+ * so a long input streamed through update() a few MiB at a time is hashed across the executor's threads.
+ * </p>
  */
 public final class Kangaroo
 {
@@ -36,7 +43,18 @@ public final class Kangaroo
          */
         public KangarooTwelve(final int pLength, CryptoServicePurpose purpose)
         {
-            super(128, 12, pLength, purpose);
+            this(pLength, purpose, null);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param pLength   the digest length
+         * @param pExecutor the executor to hash leaves on, null to hash them on the calling thread
+         */
+        public KangarooTwelve(final int pLength, CryptoServicePurpose purpose, final Executor pExecutor)
+        {
+            super(128, 12, pLength, purpose, pExecutor);
         }
 
         public KangarooTwelve(CryptoServicePurpose purpose)
@@ -71,7 +89,18 @@ public final class Kangaroo
          */
         public MarsupilamiFourteen(final int pLength, CryptoServicePurpose purpose)
         {
-            super(256, 14, pLength, purpose);
+            this(pLength, purpose, null);
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param pLength   the digest length
+         * @param pExecutor the executor to hash leaves on, null to hash them on the calling thread
+         */
+        public MarsupilamiFourteen(final int pLength, CryptoServicePurpose purpose, final Executor pExecutor)
+        {
+            super(256, 14, pLength, purpose, pExecutor);
         }
         public MarsupilamiFourteen(CryptoServicePurpose purpose)
         {
@@ -160,6 +189,11 @@ public final class Kangaroo
          */
         private static final int BLKSIZE = 8192;
 
+        /**
+         * Leaves hashed by each concurrent task.
+         */
+        private static final int TASKLEAVES = 8;
+
         /**
          * Single marker.
          */
@@ -200,6 +234,21 @@ public final class Kangaroo
          */
         private final int theChainLen;
 
+        /**
+         * The strength.
+         */
+        private final int theStrength;
+
+        /**
+         * The rounds.
+         */
+        private final int theRounds;
+
+        /**
+         * The executor for hashing leaves.
+         */
+        private final Executor theExecutor;
+
         /**
          * The personalisation.
          */
@@ -228,22 +277,27 @@ public final class Kangaroo
          * @param pStrength the strength
          * @param pRounds   the rounds.
          * @param pLength   the digest length
+         * @param pExecutor the executor to hash leaves on, may be null
          */
         KangarooBase(final int pStrength,
                      final int pRounds,
                      final int pLength,
-                     CryptoServicePurpose purpose)
+                     CryptoServicePurpose purpose,
+                     final Executor pExecutor)
         {
             /* Create underlying digests */
             theTree = new KangarooSponge(pStrength, pRounds);
             theLeaf = new KangarooSponge(pStrength, pRounds);
             theChainLen = pStrength >> 2;
+            theStrength = pStrength;
+            theRounds = pRounds;
+            theExecutor = pExecutor;
 
             /* Build personalisation */
             buildPersonal(null);
             this.purpose = purpose;
 
-            CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, pStrength, purpose));
+            Utils.checkConstraints(this, pStrength, purpose);
 
         }
 
@@ -393,6 +447,14 @@ public final class Kangaroo
                 if (theProcessed == BLKSIZE)
                 {
                     switchLeaf(true);
+
+                    /* Hash whole leaves that are followed by more data concurrently */
+                    final int myLeaves = (pLen - myProcessed - 1) / BLKSIZE;
+                    if (theExecutor != null && myLeaves > 1)
+                    {
+                        processLeaves(pIn, pInOffSet + myProcessed, myLeaves);
+                        myProcessed += myLeaves * BLKSIZE;
+                    }
                 }
 
                 /* Process next block */
@@ -449,6 +511,51 @@ public final class Kangaroo
             theProcessed = 0;
         }
 
+        /**
+         * Hash whole leaves as concurrent tasks and absorb their chaining values in order.
+         *
+         * @param pIn       the input buffer
+         * @param pInOffSet the offset of the first leaf in the input buffer
+         * @param pLeaves   the number of leaves
+         */
+        private void processLeaves(final byte[] pIn,
+                                   final int pInOffSet,
+                                   final int pLeaves)
+        {
+            final byte[] myChains = new byte[pLeaves * theChainLen];
+
+            final int myTasks = (pLeaves + TASKLEAVES - 1) / TASKLEAVES;
+            final TaskGroup myGroup = new TaskGroup(theExecutor);
+
+            for (int t = 0; t < myTasks; t++)
+            {
+                /* Each task hashes its own run of leaves into its own part of myChains */
+                final int myFirst = t * TASKLEAVES;
+                final int myLast = Math.min(pLeaves, myFirst + TASKLEAVES);
+
+                myGroup.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        final KangarooSponge mySponge = new KangarooSponge(theStrength, theRounds);
+                        for (int i = myFirst; i < myLast; i++)
+                        {
+                            mySponge.absorb(pIn, pInOffSet + i * BLKSIZE, BLKSIZE);
+                            mySponge.absorb(INTERMEDIATE, 0, INTERMEDIATE.length);
+                            mySponge.squeeze(myChains, i * theChainLen, theChainLen);
+                            mySponge.initSponge();
+                        }
+                    }
+                });
+            }
+
+            myGroup.await();
+
+            /* Absorb the chaining values, the current leaf is now the one after the last */
+            theTree.absorb(myChains, 0, myChains.length);
+            theCurrNode += pLeaves;
+        }
+
         /**
          * Switch to squeezing.
          */
@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Pack;
@@ -50,7 +49,7 @@ public class KeccakDigest
         this.purpose = purpose;
         init(bitLength);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, fixedOutputLength, purpose);
     }
 
     public KeccakDigest(KeccakDigest source)
@@ -63,7 +62,7 @@ public class KeccakDigest
         this.fixedOutputLength = source.fixedOutputLength;
         this.squeezing = source.squeezing;
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, fixedOutputLength, purpose);
     }
 
     public String getAlgorithmName()
@@ -328,8 +327,11 @@ public class KeccakDigest
 
     private void KeccakPermutation()
     {
-        long[] A = state;
+        KeccakPermutation(state);
+    }
 
+    static void KeccakPermutation(long[] A)
+    {
         long a00 = A[ 0], a01 = A[ 1], a02 = A[ 2], a03 = A[ 3], a04 = A[ 4];
         long a05 = A[ 5], a06 = A[ 6], a07 = A[ 7], a08 = A[ 8], a09 = A[ 9];
         long a10 = A[10], a11 = A[11], a12 = A[12], a13 = A[13], a14 = A[14];
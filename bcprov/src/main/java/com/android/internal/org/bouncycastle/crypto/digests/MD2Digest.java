@@ -1,7 +1,6 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.util.Memoable;
 
@@ -34,7 +33,7 @@ public class MD2Digest
     {
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, DIGEST_LENGTH * 4, purpose));
+        Utils.checkConstraints(this, DIGEST_LENGTH * 4, purpose);
 
         reset();
     }
@@ -43,7 +42,7 @@ public class MD2Digest
     {
         this.purpose = t.purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, DIGEST_LENGTH * 4, purpose));
+        Utils.checkConstraints(this, DIGEST_LENGTH * 4, purpose);
 
         copyIn(t);
     }
@@ -3,7 +3,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Memoable;
 import com.android.internal.org.bouncycastle.util.Pack;
 
@@ -33,7 +32,7 @@ public class MD4Digest
     {
         super(purpose);
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, DIGEST_LENGTH * 4, purpose));
+        Utils.checkConstraints(this, DIGEST_LENGTH * 4, purpose);
 
         reset();
     }
@@ -42,7 +41,7 @@ public class MD4Digest
     {
         super(t.purpose);
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, DIGEST_LENGTH * 4, purpose));
+        Utils.checkConstraints(this, DIGEST_LENGTH * 4, purpose);
 
         copyIn(t);
     }
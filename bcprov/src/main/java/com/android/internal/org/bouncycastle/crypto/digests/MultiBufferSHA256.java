@@ -0,0 +1,421 @@
+package com.android.internal.org.bouncycastle.crypto.digests;
+
+import com.android.internal.org.bouncycastle.util.Pack;
+
+/**
+ * SHA-256 for many independent messages at once.
+ * <p>
+ * Messages are assigned to lanes and one block from each lane is compressed per pass. The lanes are
+ * compressed in pairs with the two dependency chains interleaved, so the processor has independent work
+ * to fill its pipeline with. When a lane finishes a message the next waiting message is started in it,
+ * so lanes stay full until the end of the batch. Once there are no messages left to start, the remaining
+ * messages are moved down into the lowest lanes and only those are compressed, with an odd one out
+ * compressed on its own. The results are the same as hashing each message with SHA256Digest.
+ * </p>
+ * <p>
+ * An instance holds the working state for a batch, so it should only be used by one thread at a time.
+ * </p>
+ */
+public class MultiBufferSHA256
+{
+    private static final int DIGEST_LENGTH = 32;
+    private static final int BLOCK_LENGTH = 64;
+
+    /**
+     * The number of messages processed side by side.
+     */
+    public static final int LANES = 4;
+
+    private static final int[] IV = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    // state, word i of lane l is at [i * LANES + l]
+    private final int[] H = new int[8 * LANES];
+    // message schedule, word t of lane l is at [l * 64 + t]
+    private final int[] W = new int[64 * LANES];
+
+    // message in each lane, its current block and its total number of blocks (including padding)
+    private final int[] laneMsg = new int[LANES];
+    private final int[] laneBlock = new int[LANES];
+    private final int[] laneBlocks = new int[LANES];
+
+    private final byte[] padBlock = new byte[BLOCK_LENGTH];
+
+    public String getAlgorithmName()
+    {
+        return "SHA-256";
+    }
+
+    public int getDigestSize()
+    {
+        return DIGEST_LENGTH;
+    }
+
+    /**
+     * Calculate the SHA-256 digest of each of the passed in messages.
+     *
+     * @param messages the messages to hash.
+     * @return an array holding the digest of each message, in the same order.
+     */
+    public byte[][] digest(byte[][] messages)
+    {
+        byte[] out = new byte[messages.length * DIGEST_LENGTH];
+
+        digest(messages, out, 0);
+
+        byte[][] digests = new byte[messages.length][];
+        for (int i = 0; i != messages.length; i++)
+        {
+            digests[i] = new byte[DIGEST_LENGTH];
+            System.arraycopy(out, i * DIGEST_LENGTH, digests[i], 0, DIGEST_LENGTH);
+        }
+        return digests;
+    }
+
+    /**
+     * Calculate the SHA-256 digest of each of the passed in messages, writing the digests one after the other
+     * into out.
+     *
+     * @param messages the messages to hash.
+     * @param out the output array, with room for messages.length * 32 bytes from outOff.
+     * @param outOff the offset into out to start writing at.
+     */
+    public void digest(byte[][] messages, byte[] out, int outOff)
+    {
+        if (outOff < 0 || out.length - outOff < messages.length * DIGEST_LENGTH)
+        {
+            throw new IllegalArgumentException("output buffer too short");
+        }
+
+        int next = 0, active = 0;
+        for (int l = 0; l != LANES; l++)
+        {
+            if (next < messages.length)
+            {
+                startLane(l, messages, next++);
+                ++active;
+            }
+            else
+            {
+                laneMsg[l] = -1;
+            }
+        }
+
+        while (active > 0)
+        {
+            for (int l = 0; l < active; l++)
+            {
+                loadBlock(l, messages[laneMsg[l]], laneBlock[l], laneBlocks[l]);
+            }
+
+            processBlocks(active);
+
+            for (int l = 0; l < active; l++)
+            {
+                if (++laneBlock[l] == laneBlocks[l])
+                {
+                    int pos = outOff + laneMsg[l] * DIGEST_LENGTH;
+                    for (int i = 0; i != 8; i++)
+                    {
+                        Pack.intToBigEndian(H[i * LANES + l], out, pos + i * 4);
+                    }
+
+                    if (next < messages.length)
+                    {
+                        startLane(l, messages, next++);
+                    }
+                    else
+                    {
+                        // keep the busy lanes at the bottom, the last one takes the place of this one
+                        if (l != --active)
+                        {
+                            moveLane(active, l);
+                            --l;
+                        }
+                        laneMsg[active] = -1;
+                    }
+                }
+            }
+        }
+    }
+
+    private void moveLane(int from, int to)
+    {
+        laneMsg[to] = laneMsg[from];
+        laneBlock[to] = laneBlock[from];
+        laneBlocks[to] = laneBlocks[from];
+
+        for (int i = 0; i != 8; i++)
+        {
+            H[i * LANES + to] = H[i * LANES + from];
+        }
+    }
+
+    private void startLane(int l, byte[][] messages, int msg)
+    {
+        laneMsg[l] = msg;
+        laneBlock[l] = 0;
+        // room for the 0x80 pad byte and the 64 bit length
+        laneBlocks[l] = (messages[msg].length + 9 + BLOCK_LENGTH - 1) / BLOCK_LENGTH;
+
+        for (int i = 0; i != 8; i++)
+        {
+            H[i * LANES + l] = IV[i];
+        }
+    }
+
+    private void loadBlock(int l, byte[] msg, int block, int blocks)
+    {
+        int off = block * BLOCK_LENGTH;
+
+        if (off + BLOCK_LENGTH <= msg.length)
+        {
+            for (int i = 0; i != 16; i++)
+            {
+                W[l * 64 + i] = Pack.bigEndianToInt(msg, off + i * 4);
+            }
+            return;
+        }
+
+        byte[] pad = padBlock;
+        int count = 0;
+        if (off <= msg.length)
+        {
+            count = msg.length - off;
+            System.arraycopy(msg, off, pad, 0, count);
+        }
+        for (int i = count; i != BLOCK_LENGTH; i++)
+        {
+            pad[i] = 0;
+        }
+        if (off <= msg.length)
+        {
+            pad[count] = (byte)0x80;
+        }
+        if (block == blocks - 1)
+        {
+            Pack.longToBigEndian((long)msg.length << 3, pad, BLOCK_LENGTH - 8);
+        }
+
+        for (int i = 0; i != 16; i++)
+        {
+            W[l * 64 + i] = Pack.bigEndianToInt(pad, i * 4);
+        }
+    }
+
+    // compress the current block of each of lanes 0 to active - 1
+    private void processBlocks(int active)
+    {
+        int[] H = this.H, W = this.W, K = SHA256Digest.K;
+
+        //
+        // expand 16 word blocks into 64 word blocks.
+        //
+        for (int l = 0; l != active; l++)
+        {
+            for (int t = l * 64 + 16, end = l * 64 + 64; t != end; t++)
+            {
+                W[t] = Theta1(W[t - 2]) + W[t - 7] + Theta0(W[t - 15]) + W[t - 16];
+            }
+        }
+
+        //
+        // compress the lanes two at a time, interleaving the two dependency chains.
+        //
+        int l0 = 0;
+        for (; l0 + 1 < active; l0 += 2)
+        {
+            int a0 = H[l0], a1 = H[l0 + 1];
+            int b0 = H[1 * LANES + l0], b1 = H[1 * LANES + l0 + 1];
+            int c0 = H[2 * LANES + l0], c1 = H[2 * LANES + l0 + 1];
+            int d0 = H[3 * LANES + l0], d1 = H[3 * LANES + l0 + 1];
+            int e0 = H[4 * LANES + l0], e1 = H[4 * LANES + l0 + 1];
+            int f0 = H[5 * LANES + l0], f1 = H[5 * LANES + l0 + 1];
+            int g0 = H[6 * LANES + l0], g1 = H[6 * LANES + l0 + 1];
+            int h0 = H[7 * LANES + l0], h1 = H[7 * LANES + l0 + 1];
+
+            int t = 0, k, w0, w1;
+            for (int i = 0; i != 8; i++)
+            {
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                h0 += Sum1(e0) + Ch(e0, f0, g0) + k + W[w0];
+                d0 += h0;
+                h0 += Sum0(a0) + Maj(a0, b0, c0);
+                h1 += Sum1(e1) + Ch(e1, f1, g1) + k + W[w1];
+                d1 += h1;
+                h1 += Sum0(a1) + Maj(a1, b1, c1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                g0 += Sum1(d0) + Ch(d0, e0, f0) + k + W[w0];
+                c0 += g0;
+                g0 += Sum0(h0) + Maj(h0, a0, b0);
+                g1 += Sum1(d1) + Ch(d1, e1, f1) + k + W[w1];
+                c1 += g1;
+                g1 += Sum0(h1) + Maj(h1, a1, b1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                f0 += Sum1(c0) + Ch(c0, d0, e0) + k + W[w0];
+                b0 += f0;
+                f0 += Sum0(g0) + Maj(g0, h0, a0);
+                f1 += Sum1(c1) + Ch(c1, d1, e1) + k + W[w1];
+                b1 += f1;
+                f1 += Sum0(g1) + Maj(g1, h1, a1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                e0 += Sum1(b0) + Ch(b0, c0, d0) + k + W[w0];
+                a0 += e0;
+                e0 += Sum0(f0) + Maj(f0, g0, h0);
+                e1 += Sum1(b1) + Ch(b1, c1, d1) + k + W[w1];
+                a1 += e1;
+                e1 += Sum0(f1) + Maj(f1, g1, h1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                d0 += Sum1(a0) + Ch(a0, b0, c0) + k + W[w0];
+                h0 += d0;
+                d0 += Sum0(e0) + Maj(e0, f0, g0);
+                d1 += Sum1(a1) + Ch(a1, b1, c1) + k + W[w1];
+                h1 += d1;
+                d1 += Sum0(e1) + Maj(e1, f1, g1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                c0 += Sum1(h0) + Ch(h0, a0, b0) + k + W[w0];
+                g0 += c0;
+                c0 += Sum0(d0) + Maj(d0, e0, f0);
+                c1 += Sum1(h1) + Ch(h1, a1, b1) + k + W[w1];
+                g1 += c1;
+                c1 += Sum0(d1) + Maj(d1, e1, f1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                b0 += Sum1(g0) + Ch(g0, h0, a0) + k + W[w0];
+                f0 += b0;
+                b0 += Sum0(c0) + Maj(c0, d0, e0);
+                b1 += Sum1(g1) + Ch(g1, h1, a1) + k + W[w1];
+                f1 += b1;
+                b1 += Sum0(c1) + Maj(c1, d1, e1);
+                ++t;
+
+                k = K[t];
+                w0 = l0 * 64 + t;
+                w1 = w0 + 64;
+                a0 += Sum1(f0) + Ch(f0, g0, h0) + k + W[w0];
+                e0 += a0;
+                a0 += Sum0(b0) + Maj(b0, c0, d0);
+                a1 += Sum1(f1) + Ch(f1, g1, h1) + k + W[w1];
+                e1 += a1;
+                a1 += Sum0(b1) + Maj(b1, c1, d1);
+                ++t;
+            }
+
+            H[l0] += a0;
+            H[l0 + 1] += a1;
+            H[1 * LANES + l0] += b0;
+            H[1 * LANES + l0 + 1] += b1;
+            H[2 * LANES + l0] += c0;
+            H[2 * LANES + l0 + 1] += c1;
+            H[3 * LANES + l0] += d0;
+            H[3 * LANES + l0 + 1] += d1;
+            H[4 * LANES + l0] += e0;
+            H[4 * LANES + l0 + 1] += e1;
+            H[5 * LANES + l0] += f0;
+            H[5 * LANES + l0 + 1] += f1;
+            H[6 * LANES + l0] += g0;
+            H[6 * LANES + l0 + 1] += g1;
+            H[7 * LANES + l0] += h0;
+            H[7 * LANES + l0 + 1] += h1;
+        }
+
+        if (l0 < active)
+        {
+            processLane(l0);
+        }
+    }
+
+    private void processLane(int l)
+    {
+        int[] H = this.H, W = this.W, K = SHA256Digest.K;
+
+        int a = H[l];
+        int b = H[1 * LANES + l];
+        int c = H[2 * LANES + l];
+        int d = H[3 * LANES + l];
+        int e = H[4 * LANES + l];
+        int f = H[5 * LANES + l];
+        int g = H[6 * LANES + l];
+        int h = H[7 * LANES + l];
+
+        for (int t = 0, w = l * 64; t != 64; t++, w++)
+        {
+            int t1 = h + Sum1(e) + Ch(e, f, g) + K[t] + W[w];
+            int t2 = Sum0(a) + Maj(a, b, c);
+            h = g;
+            g = f;
+            f = e;
+            e = d + t1;
+            d = c;
+            c = b;
+            b = a;
+            a = t1 + t2;
+        }
+
+        H[l] += a;
+        H[1 * LANES + l] += b;
+        H[2 * LANES + l] += c;
+        H[3 * LANES + l] += d;
+        H[4 * LANES + l] += e;
+        H[5 * LANES + l] += f;
+        H[6 * LANES + l] += g;
+        H[7 * LANES + l] += h;
+    }
+
+    /* SHA-256 functions */
+    private static int Ch(int x, int y, int z)
+    {
+        return (x & y) ^ ((~x) & z);
+    }
+
+    private static int Maj(int x, int y, int z)
+    {
+        return (x & y) | (z & (x ^ y));
+    }
+
+    private static int Sum0(int x)
+    {
+        return ((x >>> 2) | (x << 30)) ^ ((x >>> 13) | (x << 19)) ^ ((x >>> 22) | (x << 10));
+    }
+
+    private static int Sum1(int x)
+    {
+        return ((x >>> 6) | (x << 26)) ^ ((x >>> 11) | (x << 21)) ^ ((x >>> 25) | (x << 7));
+    }
+
+    private static int Theta0(int x)
+    {
+        return ((x >>> 7) | (x << 25)) ^ ((x >>> 18) | (x << 14)) ^ (x >>> 3);
+    }
+
+    private static int Theta1(int x)
+    {
+        return ((x >>> 17) | (x << 15)) ^ ((x >>> 19) | (x << 13)) ^ (x >>> 10);
+    }
+}
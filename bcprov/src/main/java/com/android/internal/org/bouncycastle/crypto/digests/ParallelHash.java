@@ -1,12 +1,14 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
+import java.util.concurrent.Executor;
+
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.Xof;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Strings;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * ParallelHash - a hash designed  to  support the efficient hashing of very long strings, by taking advantage
@@ -14,12 +16,19 @@ import com.android.internal.org.bouncycastle.util.Strings;
  * <p>
  * From NIST Special Publication 800-185 - SHA-3 Derived Functions:cSHAKE, KMAC, TupleHash and ParallelHash
  * </p>
+ * <p>
+ * If an executor is provided, the whole blocks passed to each update() call are hashed as concurrent tasks on it,
+ * so a long input streamed through update() a few MiB at a time is hashed across the executor's threads.
+ * </p>
  */
 public class ParallelHash
     implements Xof, Digest
 {
     private static final byte[] N_PARALLEL_HASH = Strings.toByteArray("ParallelHash");
 
+    // bytes of input hashed by each concurrent task
+    private static final int TASK_SIZE = 64 * 1024;
+
     private final CSHAKEDigest cshake;
     private final CSHAKEDigest compressor;
     private final int bitLength;
@@ -27,6 +36,7 @@ public class ParallelHash
     private final int B;
     private final byte[] buffer;
     private final byte[] compressorBuffer;
+    private final Executor executor;
 
     private boolean firstOutput;
     private int nCount;
@@ -51,6 +61,21 @@ public class ParallelHash
         this(bitLength, S, B, outputSize, CryptoServicePurpose.ANY);
     }
     public ParallelHash(int bitLength, byte[] S, int B, int outputSize, CryptoServicePurpose purpose)
+    {
+        this(bitLength, S, B, outputSize, purpose, null);
+    }
+
+    /**
+     * Constructor for a ParallelHash which hashes blocks concurrently.
+     *
+     * @param bitLength security strength (bits) of the underlying SHAKE function, 128 or 256.
+     * @param S the customization string - available for local use.
+     * @param B the blocksize (in bytes) for hashing.
+     * @param outputSize the output size in bits.
+     * @param purpose usage purpose.
+     * @param executor the executor to hash blocks on, null to hash them on the calling thread.
+     */
+    public ParallelHash(int bitLength, byte[] S, int B, int outputSize, CryptoServicePurpose purpose, Executor executor)
     {
         this.cshake = new CSHAKEDigest(bitLength, N_PARALLEL_HASH, S);
         this.compressor = new CSHAKEDigest(bitLength, new byte[0], new byte[0]);
@@ -60,8 +85,9 @@ public class ParallelHash
         this.buffer = new byte[B];
         this.compressorBuffer = new byte[bitLength * 2 / 8];
         this.purpose = purpose;
+        this.executor = executor;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, bitLength, purpose));
+        Utils.checkConstraints(this, bitLength, purpose);
 
         reset();
     }
@@ -76,12 +102,13 @@ public class ParallelHash
         this.buffer = Arrays.clone(source.buffer);
         this.compressorBuffer = Arrays.clone(source.compressorBuffer);
         this.purpose = source.purpose;
+        this.executor = source.executor;
 
         this.firstOutput = source.firstOutput;
         this.nCount = source.nCount;
         this.bufOff = source.bufOff;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, bitLength, purpose));
+        Utils.checkConstraints(this, bitLength, purpose);
     }
 
     public String getAlgorithmName()
@@ -133,6 +160,13 @@ public class ParallelHash
 
         if (i < len)
         {
+            int blocks = (len - i) / B;
+            if (executor != null && blocks > 1)
+            {
+                compressConcurrently(in, inOff + i, blocks);
+                i += blocks * B;
+            }
+
             while (len - i >= B)
             {
                 compress(in, inOff + i, B);
@@ -162,6 +196,43 @@ public class ParallelHash
         nCount++;
     }
 
+    private void compressConcurrently(final byte[] buf, final int offSet, final int blocks)
+    {
+        final int cvLen = compressorBuffer.length;
+        final byte[] cvs = new byte[blocks * cvLen];
+
+        final int blocksPerTask = Math.max(1, TASK_SIZE / B);
+        final int taskCount = (blocks + blocksPerTask - 1) / blocksPerTask;
+
+        TaskGroup tasks = new TaskGroup(executor);
+
+        for (int t = 0; t < taskCount; t++)
+        {
+            // each task hashes its own run of blocks into its own part of cvs
+            final int first = t * blocksPerTask;
+            final int last = Math.min(blocks, first + blocksPerTask);
+            final CSHAKEDigest leafCompressor = new CSHAKEDigest(compressor);
+
+            tasks.execute(new Runnable()
+            {
+                public void run()
+                {
+                    for (int j = first; j < last; j++)
+                    {
+                        leafCompressor.update(buf, offSet + j * B, B);
+                        leafCompressor.doFinal(cvs, j * cvLen, cvLen);
+                    }
+                }
+            });
+        }
+
+        tasks.await();
+
+        cshake.update(cvs, 0, cvs.length);
+
+        nCount += blocks;
+    }
+
     private void wrapUp(int outputSize)
     {
         if (bufOff != 0)
@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Memoable;
 import com.android.internal.org.bouncycastle.util.Pack;
 
@@ -31,7 +30,7 @@ public class RIPEMD128Digest
     {
         super(purpose);
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, 128, purpose));
+        Utils.checkConstraints(this, 128, purpose);
 
         reset();
     }
@@ -44,7 +43,7 @@ public class RIPEMD128Digest
     {
         super(t.purpose);
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, 128, purpose));
+        Utils.checkConstraints(this, 128, purpose);
 
         copyIn(t);
     }
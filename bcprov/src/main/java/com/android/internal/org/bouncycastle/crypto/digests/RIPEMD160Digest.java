@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Memoable;
 import com.android.internal.org.bouncycastle.util.Pack;
 
@@ -35,7 +34,7 @@ public class RIPEMD160Digest
     {
         super(purpose);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 128, purpose);
 
         reset();
     }
@@ -48,7 +47,7 @@ public class RIPEMD160Digest
     {
         super(t);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 128, purpose);
 
         copyIn(t);
     }
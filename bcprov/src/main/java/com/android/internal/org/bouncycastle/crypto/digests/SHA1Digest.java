@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Memoable;
 import com.android.internal.org.bouncycastle.util.Pack;
 
@@ -38,7 +37,7 @@ public class SHA1Digest
     {
         super(purpose);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 128, purpose);
 
         reset();
     }
@@ -51,7 +50,7 @@ public class SHA1Digest
     {
         super(t);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 128, purpose);
 
         copyIn(t);
     }
@@ -65,7 +64,7 @@ public class SHA1Digest
     {
         super(encodedState);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 128, purpose);
 
         H1 = Pack.bigEndianToInt(encodedState, 16);
         H2 = Pack.bigEndianToInt(encodedState, 20);
@@ -1,9 +1,10 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.SavableDigest;
 import com.android.internal.org.bouncycastle.util.Memoable;
@@ -72,7 +73,7 @@ public class SHA256Digest
     {
         super(purpose);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
 
         reset();
     }
@@ -153,6 +154,28 @@ public class SHA256Digest
         }
     }
 
+    protected void processWords(
+        ByteBuffer  in,
+        int         count)
+    {
+        // read the words in place, whatever order the caller has set on the buffer
+        ByteBuffer words = in.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int pos = words.position();
+
+        for (int i = 0; i < count; ++i)
+        {
+            X[xOff] = words.getInt(pos);
+            pos += 4;
+
+            if (++xOff == 16)
+            {
+                processBlock();
+            }
+        }
+
+        in.position(pos);
+    }
+
     protected void processLength(
         long    bitLength)
     {
@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Memoable;
 import com.android.internal.org.bouncycastle.util.Pack;
 
@@ -38,7 +37,7 @@ public class SHA384Digest
     {
         super(purpose);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
 
         reset();
     }
@@ -51,7 +50,7 @@ public class SHA384Digest
     {
         super(t);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
     }
 
     /**
@@ -65,7 +64,7 @@ public class SHA384Digest
 
         restoreState(encodedState);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, 256, purpose);
     }
 
     public String getAlgorithmName()
@@ -2,7 +2,6 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.util.Memoable;
 import com.android.internal.org.bouncycastle.util.MemoableResetException;
 import com.android.internal.org.bouncycastle.util.Pack;
@@ -44,7 +43,7 @@ public class SHA512tDigest
 
         this.digestLength = bitLength / 8;
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, getDigestSize() * 8, purpose);
 
         tIvGenerate(digestLength * 8);
 
@@ -61,7 +60,7 @@ public class SHA512tDigest
 
         this.digestLength = t.digestLength;
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, getDigestSize() * 8, purpose);
 
         reset(t);
     }
@@ -70,7 +69,7 @@ public class SHA512tDigest
     {
         this(readDigestLength(encodedState), CryptoServicePurpose.values()[encodedState[encodedState.length - 1]]);
 
-        CryptoServicesRegistrar.checkConstraints(cryptoServiceProperties());
+        Utils.checkConstraints(this, getDigestSize() * 8, purpose);
 
         restoreState(encodedState);
     }
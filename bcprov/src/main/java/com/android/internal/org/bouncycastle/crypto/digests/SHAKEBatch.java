@@ -0,0 +1,192 @@
+package com.android.internal.org.bouncycastle.crypto.digests;
+
+import com.android.internal.org.bouncycastle.crypto.DataLengthException;
+import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
+import com.android.internal.org.bouncycastle.util.Arrays;
+import com.android.internal.org.bouncycastle.util.Pack;
+
+/**
+ * A batch of independent SHAKE streams, as used for the matrix and vector expansion in the lattice based
+ * schemes, which derive many short streams from a seed and a varying nonce.
+ * <p>
+ * Each instance is a SHAKE sponge. Input is absorbed directly into the Keccak state and output is squeezed
+ * directly from it, so a stream needs no digest object, queue buffer, or reset of its own, and a whole batch
+ * of streams can be expanded with one call to squeezeBlocks(). The states are permuted one after another,
+ * this is not an interleaved multi-lane Keccak. The output of each instance is the same as that of a
+ * SHAKEDigest given the same input.
+ * </p>
+ * <p>
+ * An instance holds the working state for a batch, so it should only be used by one thread at a time.
+ * </p>
+ */
+public class SHAKEBatch
+{
+    private final int bitLength;
+    private final int rateBytes;
+    private final long[][] states;
+    // bytes of each instance's current output block already used, rateBytes if a new block is needed
+    private final int[] used;
+
+    /**
+     * Create count SHAKE instances of the given security strength.
+     *
+     * @param bitLength the SHAKE variant, 128 or 256.
+     * @param count the number of independent instances.
+     */
+    public SHAKEBatch(int bitLength, int count)
+    {
+        if (bitLength != 128 && bitLength != 256)
+        {
+            throw new IllegalArgumentException("'bitLength' " + bitLength + " not supported for SHAKE");
+        }
+        if (count < 1)
+        {
+            throw new IllegalArgumentException("'count' must be at least 1");
+        }
+
+        this.bitLength = bitLength;
+        this.rateBytes = (1600 - (bitLength << 1)) >>> 3;
+        this.states = new long[count][25];
+        this.used = new int[count];
+    }
+
+    public String getAlgorithmName()
+    {
+        return "SHAKE" + bitLength;
+    }
+
+    /**
+     * Return the number of instances.
+     */
+    public int getCount()
+    {
+        return states.length;
+    }
+
+    /**
+     * Return the size of an output block in bytes.
+     */
+    public int getByteLength()
+    {
+        return rateBytes;
+    }
+
+    /**
+     * Start a new stream in an instance, absorbing all of its input.
+     *
+     * @param index the instance to start.
+     * @param in the input array.
+     * @param inOff the offset of the input.
+     * @param inLen the length of the input.
+     */
+    public void init(int index, byte[] in, int inOff, int inLen)
+    {
+        if (inOff + inLen > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        long[] A = states[index];
+        int rateLongs = rateBytes >>> 3;
+
+        Arrays.fill(A, 0L);
+
+        while (inLen >= rateBytes)
+        {
+            for (int i = 0; i < rateLongs; i++)
+            {
+                A[i] ^= Pack.littleEndianToLong(in, inOff + (i << 3));
+            }
+            KeccakDigest.KeccakPermutation(A);
+
+            inOff += rateBytes;
+            inLen -= rateBytes;
+        }
+
+        int full = inLen >>> 3;
+        for (int i = 0; i < full; i++)
+        {
+            A[i] ^= Pack.littleEndianToLong(in, inOff + (i << 3));
+        }
+        for (int i = full << 3; i < inLen; i++)
+        {
+            A[i >>> 3] ^= (long)(in[inOff + i] & 0xff) << ((i & 7) << 3);
+        }
+
+        // SHAKE domain separation bits and the first padding bit, then the final padding bit
+        A[inLen >>> 3] ^= 0x1FL << ((inLen & 7) << 3);
+        A[rateLongs - 1] ^= 1L << 63;
+
+        used[index] = rateBytes;
+    }
+
+    /**
+     * Produce the next outLen bytes of an instance's output stream.
+     *
+     * @param index the instance to squeeze.
+     * @param out the output array.
+     * @param outOff the offset to start writing at.
+     * @param outLen the number of bytes to produce.
+     */
+    public void squeeze(int index, byte[] out, int outOff, int outLen)
+    {
+        if (outOff + outLen > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        long[] A = states[index];
+        int pos = used[index];
+
+        while (outLen > 0)
+        {
+            if (pos == rateBytes)
+            {
+                KeccakDigest.KeccakPermutation(A);
+                pos = 0;
+            }
+
+            if (pos == 0 && outLen >= rateBytes)
+            {
+                Pack.longToLittleEndian(A, 0, rateBytes >>> 3, out, outOff);
+                pos = rateBytes;
+                outOff += rateBytes;
+                outLen -= rateBytes;
+                continue;
+            }
+
+            int count = Math.min(outLen, rateBytes - pos);
+            for (int i = 0; i < count; i++, pos++)
+            {
+                out[outOff + i] = (byte)(A[pos >>> 3] >>> ((pos & 7) << 3));
+            }
+            outOff += count;
+            outLen -= count;
+        }
+
+        used[index] = pos;
+    }
+
+    /**
+     * Produce the next blocks * getByteLength() bytes of every instance's output stream. The output of instance i
+     * is written at outOff + i * blocks * getByteLength().
+     *
+     * @param out the output array.
+     * @param outOff the offset to start writing at.
+     * @param blocks the number of blocks to produce for each instance.
+     */
+    public void squeezeBlocks(byte[] out, int outOff, int blocks)
+    {
+        int len = blocks * rateBytes;
+
+        if (outOff + states.length * len > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        for (int i = 0; i != states.length; i++)
+        {
+            squeeze(i, out, outOff + i * len, len);
+        }
+    }
+}
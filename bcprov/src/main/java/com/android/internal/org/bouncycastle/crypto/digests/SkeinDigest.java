@@ -1,7 +1,6 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.crypto.engines.ThreefishEngine;
 import com.android.internal.org.bouncycastle.crypto.params.SkeinParameters;
@@ -58,7 +57,7 @@ public class SkeinDigest
         this.purpose = purpose;
 
         init(null);
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize() * 4, purpose));
+        Utils.checkConstraints(this, getDigestSize() * 4, purpose);
 
     }
 
@@ -67,7 +66,7 @@ public class SkeinDigest
         this.engine = new SkeinEngine(digest.engine);
         this.purpose = digest.purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, digest.getDigestSize() * 4, purpose));
+        Utils.checkConstraints(this, digest.getDigestSize() * 4, purpose);
 
     }
 
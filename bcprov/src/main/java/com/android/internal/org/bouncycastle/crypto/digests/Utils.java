@@ -2,10 +2,23 @@ package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
+import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.Digest;
 
 class Utils
 {
+    /**
+     * Check the digest against any installed constraints. The properties object is only built if
+     * constraints are installed, as digests are often created on performance sensitive paths.
+     */
+    static void checkConstraints(Digest digest, int prfBitsOfSecurity, CryptoServicePurpose purpose)
+    {
+        if (CryptoServicesRegistrar.hasEnabledConstraints())
+        {
+            CryptoServicesRegistrar.checkConstraints(getDefaultProperties(digest, prfBitsOfSecurity, purpose));
+        }
+    }
+
     static CryptoServiceProperties getDefaultProperties(Digest digest, CryptoServicePurpose purpose)
     {
         return new DefaultProperties(digest.getDigestSize() * 4, digest.getAlgorithmName(), purpose);
@@ -1,7 +1,6 @@
 package com.android.internal.org.bouncycastle.crypto.digests;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Memoable;
@@ -124,7 +123,7 @@ public final class WhirlpoolDigest
         }
         this.purpose = purpose;
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize(), purpose));
+        Utils.checkConstraints(this, getDigestSize(), purpose);
     }
 
     // --------------------------------------------------------------------------------------//
@@ -149,7 +148,7 @@ public final class WhirlpoolDigest
         this.purpose = originalDigest.purpose;
         reset(originalDigest);
 
-        CryptoServicesRegistrar.checkConstraints(Utils.getDefaultProperties(this, getDigestSize(), purpose));
+        Utils.checkConstraints(this, getDigestSize(), purpose);
     }
 
     public String getAlgorithmName()
@@ -1,12 +1,10 @@
 package com.android.internal.org.bouncycastle.crypto.engines;
 
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.DefaultMultiBlockCipher;
 import com.android.internal.org.bouncycastle.crypto.MultiBlockCipher;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
-import com.android.internal.org.bouncycastle.crypto.constraints.DefaultServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Pack;
@@ -437,7 +435,7 @@ private static final int[] Tinv0 =
      */
     public AESEngine()
     {
-        CryptoServicesRegistrar.checkConstraints(new DefaultServiceProperties(getAlgorithmName(), 256));
+        Utils.checkConstraints(getAlgorithmName(), 256);
     }
 
     /**
@@ -465,7 +463,7 @@ private static final int[] Tinv0 =
                 s = Arrays.clone(Si);
             }
 
-            CryptoServicesRegistrar.checkConstraints(new DefaultServiceProperties(getAlgorithmName(), bitsOfSecurity(), params, Utils.getPurpose(forEncryption)));
+            Utils.checkConstraints(getAlgorithmName(), bitsOfSecurity(), params, forEncryption);
 
             return;
         }
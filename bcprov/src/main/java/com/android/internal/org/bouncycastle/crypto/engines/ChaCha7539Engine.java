@@ -117,4 +117,20 @@ public class ChaCha7539Engine extends Salsa20Engine
         ChaChaEngine.chachaCore(rounds, engineState, x);
         Pack.intToLittleEndian(x, output, 0);
     }
+
+    protected void processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+    {
+        // combine the key stream words with the input directly, rather than via the key stream bytes
+        for (int b = 0; b < blockCount; ++b)
+        {
+            ChaChaEngine.chachaCore(rounds, engineState, x);
+            for (int j = 0; j < 16; ++j)
+            {
+                Pack.intToLittleEndian(Pack.littleEndianToInt(in, inOff) ^ x[j], out, outOff);
+                inOff += 4;
+                outOff += 4;
+            }
+            advanceCounter();
+        }
+    }
 }
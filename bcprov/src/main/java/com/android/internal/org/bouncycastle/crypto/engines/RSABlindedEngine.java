@@ -20,10 +20,17 @@ public class RSABlindedEngine
 {
     private static final BigInteger ONE = BigInteger.valueOf(1);
 
+    // number of times a blinding pair is updated by squaring before a fresh one is generated
+    private static final int BLINDING_REFRESH = 32;
+
     private RSACoreEngine    core = new RSACoreEngine();
     private RSAKeyParameters key;
     private SecureRandom     random;
 
+    private BigInteger       blind;
+    private BigInteger       unblind;
+    private int              blindingUses;
+
     /**
      * initialise the RSA engine.
      *
@@ -42,7 +49,14 @@ public class RSABlindedEngine
 
         core.init(forEncryption, parameters);
 
-        this.key = (RSAKeyParameters)parameters;
+        RSAKeyParameters newKey = (RSAKeyParameters)parameters;
+        if (!isSameBlindingKey(key, newKey))
+        {
+            this.blind = null;
+            this.unblind = null;
+        }
+
+        this.key = newKey;
         this.random = initSecureRandom(key instanceof RSAPrivateCrtKeyParameters, providedRandom);
     }
 
@@ -91,6 +105,27 @@ public class RSABlindedEngine
         return core.convertOutput(result);
     }
 
+    /*
+     * A blinding pair only depends on the modulus and public exponent, so it can be kept when the engine
+     * is initialised again with another parameters object for the same key.
+     */
+    private static boolean isSameBlindingKey(RSAKeyParameters oldKey, RSAKeyParameters newKey)
+    {
+        if (oldKey == newKey)
+        {
+            return true;
+        }
+        if (!(oldKey instanceof RSAPrivateCrtKeyParameters) || !(newKey instanceof RSAPrivateCrtKeyParameters))
+        {
+            return false;
+        }
+
+        BigInteger oldE = ((RSAPrivateCrtKeyParameters)oldKey).getPublicExponent();
+        BigInteger newE = ((RSAPrivateCrtKeyParameters)newKey).getPublicExponent();
+
+        return oldE != null && oldE.equals(newE) && oldKey.getModulus().equals(newKey.getModulus());
+    }
+
     protected SecureRandom initSecureRandom(boolean needed, SecureRandom provided)
     {
         return needed ? CryptoServicesRegistrar.getSecureRandom(provided) : null;
@@ -107,9 +142,7 @@ public class RSABlindedEngine
             {
                 BigInteger m = crtKey.getModulus();
 
-                BigInteger r = BigIntegers.createRandomInRange(ONE, m.subtract(ONE), random);
-                BigInteger blind = r.modPow(e, m);
-                BigInteger unblind = BigIntegers.modOddInverse(m, r);
+                updateBlinding(e, m);
 
                 BigInteger blindedInput = blind.multiply(input).mod(m);
                 BigInteger blindedResult = core.processBlock(blindedInput);
@@ -119,4 +152,27 @@ public class RSABlindedEngine
 
         return core.processBlock(input);
     }
+
+    /*
+     * A blinding pair (r^e, r^-1) stays valid when both halves are squared, which is far cheaper than
+     * generating a new random r and inverting it. A fresh pair is still generated every BLINDING_REFRESH
+     * operations so that the blinding values never become predictable over a long run.
+     */
+    private void updateBlinding(BigInteger e, BigInteger m)
+    {
+        if (blind == null || blindingUses >= BLINDING_REFRESH)
+        {
+            BigInteger r = BigIntegers.createRandomInRange(ONE, m.subtract(ONE), random);
+            blind = r.modPow(e, m);
+            unblind = BigIntegers.modOddInverse(m, r);
+            blindingUses = 0;
+        }
+        else
+        {
+            blind = blind.multiply(blind).mod(m);
+            unblind = unblind.multiply(unblind).mod(m);
+        }
+
+        ++blindingUses;
+    }
 }
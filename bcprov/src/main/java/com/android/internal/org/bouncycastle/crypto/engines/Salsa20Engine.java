@@ -1,12 +1,14 @@
 package com.android.internal.org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.android.internal.org.bouncycastle.crypto.ByteBufferCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
-import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.MaxBytesExceededException;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.crypto.SkippingStreamCipher;
-import com.android.internal.org.bouncycastle.crypto.constraints.DefaultServiceProperties;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
 import com.android.internal.org.bouncycastle.util.Integers;
@@ -17,7 +19,7 @@ import com.android.internal.org.bouncycastle.util.Strings;
  * Implementation of Daniel J. Bernstein's Salsa20 stream cipher, Snuffle 2005
  */
 public class Salsa20Engine
-    implements SkippingStreamCipher
+    implements SkippingStreamCipher, ByteBufferCipher
 {
     public final static int DEFAULT_ROUNDS = 20;
 
@@ -126,8 +128,7 @@ public class Salsa20Engine
 
             setKey(key, iv);
 
-            CryptoServicesRegistrar.checkConstraints(new DefaultServiceProperties(
-                        this.getAlgorithmName(), key.length * 8, params, Utils.getPurpose(forEncryption)));
+            Utils.checkConstraints(this.getAlgorithmName(), key.length * 8, params, forEncryption);
         }
         else
         {
@@ -276,7 +277,8 @@ public class Salsa20Engine
             throw new MaxBytesExceededException("2^70 byte limit per IV would be exceeded; Change IV");
         }
 
-        for (int i = 0; i < len; i++)
+        int i = 0;
+        while (index != 0 && i < len)
         {
             out[i + outOff] = (byte)(keyStream[index] ^ in[i + inOff]);
             index = (index + 1) & 63;
@@ -286,8 +288,125 @@ public class Salsa20Engine
                 advanceCounter();
                 generateKeyStream(keyStream);
             }
+            ++i;
+        }
+
+        int blockCount = (len - i) >>> 6;
+        if (blockCount > 0)
+        {
+            // the key stream for the first block is already waiting in keyStream
+            for (int j = 0; j < 64; j += 8)
+            {
+                long k = Pack.littleEndianToLong(keyStream, j);
+                Pack.longToLittleEndian(Pack.littleEndianToLong(in, inOff + i + j) ^ k, out, outOff + i + j);
+            }
+            advanceCounter();
+            i += 64;
+
+            if (blockCount > 1)
+            {
+                processBlocks(in, inOff + i, blockCount - 1, out, outOff + i);
+                i += (blockCount - 1) << 6;
+            }
+
+            generateKeyStream(keyStream);
+        }
+
+        while (i < len)
+        {
+            out[i + outOff] = (byte)(keyStream[index++] ^ in[i + inOff]);
+            ++i;
+        }
+
+        return len;
+    }
+
+    /**
+     * Process blockCount whole blocks, generating the key stream for each from the current counter and
+     * advancing the counter past it. The buffered key stream may be overwritten, callers regenerate it
+     * afterwards.
+     */
+    protected void processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+    {
+        for (int b = 0; b < blockCount; ++b)
+        {
+            generateKeyStream(keyStream);
+            for (int j = 0; j < 64; j += 8)
+            {
+                long k = Pack.littleEndianToLong(keyStream, j);
+                Pack.longToLittleEndian(Pack.littleEndianToLong(in, inOff + j) ^ k, out, outOff + j);
+            }
+            advanceCounter();
+
+            inOff += 64;
+            outOff += 64;
+        }
+    }
+
+    public int processBytes(
+        ByteBuffer in,
+        ByteBuffer out)
+    {
+        if (!initialised)
+        {
+            throw new IllegalStateException(getAlgorithmName() + " not initialised");
         }
 
+        int len = in.remaining();
+
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (in.hasArray() && out.hasArray())
+        {
+            processBytes(in.array(), in.arrayOffset() + in.position(), len, out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + len);
+            return len;
+        }
+
+        if (limitExceeded(len))
+        {
+            throw new MaxBytesExceededException("2^70 byte limit per IV would be exceeded; Change IV");
+        }
+
+        // the key stream is little endian, so whole blocks can be combined a long at a time
+        ByteBuffer src = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer dst = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        while (index != 0 && src.hasRemaining())
+        {
+            dst.put((byte)(keyStream[index] ^ src.get()));
+            index = (index + 1) & 63;
+
+            if (index == 0)
+            {
+                advanceCounter();
+                generateKeyStream(keyStream);
+            }
+        }
+
+        while (src.remaining() >= 64)
+        {
+            for (int i = 0; i < 64; i += 8)
+            {
+                dst.putLong(src.getLong() ^ Pack.littleEndianToLong(keyStream, i));
+            }
+
+            advanceCounter();
+            generateKeyStream(keyStream);
+        }
+
+        while (src.hasRemaining())
+        {
+            dst.put((byte)(keyStream[index++] ^ src.get()));
+        }
+
+        in.position(src.position());
+        out.position(dst.position());
+
         return len;
     }
 
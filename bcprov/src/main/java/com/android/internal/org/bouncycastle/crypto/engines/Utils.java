@@ -1,9 +1,37 @@
 package com.android.internal.org.bouncycastle.crypto.engines;
 
+import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicePurpose;
+import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
+import com.android.internal.org.bouncycastle.crypto.constraints.DefaultServiceProperties;
 
 class Utils
 {
+    /**
+     * Check an engine against any installed constraints, only building the properties object if
+     * constraints are installed.
+     */
+    static void checkConstraints(String algorithmName, int bitsOfSecurity)
+    {
+        if (CryptoServicesRegistrar.hasEnabledConstraints())
+        {
+            CryptoServicesRegistrar.checkConstraints(new DefaultServiceProperties(algorithmName, bitsOfSecurity));
+        }
+    }
+
+    /**
+     * Check an initialised engine against any installed constraints, only building the properties object if
+     * constraints are installed.
+     */
+    static void checkConstraints(String algorithmName, int bitsOfSecurity, CipherParameters params, boolean forEncryption)
+    {
+        if (CryptoServicesRegistrar.hasEnabledConstraints())
+        {
+            CryptoServicesRegistrar.checkConstraints(new DefaultServiceProperties(algorithmName, bitsOfSecurity, params,
+                getPurpose(forEncryption)));
+        }
+    }
+
     static CryptoServicePurpose getPurpose(boolean forEncryption)
     {
         return forEncryption ? CryptoServicePurpose.ENCRYPTION : CryptoServicePurpose.DECRYPTION;
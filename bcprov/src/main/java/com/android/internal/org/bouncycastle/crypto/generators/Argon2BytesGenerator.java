@@ -1,11 +1,14 @@
 package com.android.internal.org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.Executor;
+
 import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.digests.Blake2bDigest;
 import com.android.internal.org.bouncycastle.crypto.params.Argon2Parameters;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Longs;
 import com.android.internal.org.bouncycastle.util.Pack;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * Argon2 PBKDF - Based on the results of https://password-hashing.net/ and https://www.ietf.org/archive/id/draft-irtf-cfrg-argon2-03.txt
@@ -36,6 +39,8 @@ public class Argon2BytesGenerator
 
     private static final byte[] ZERO_BYTES = new byte[4];
 
+    private final Executor executor;
+
     private Argon2Parameters parameters;
     private Block[] memory;
     private int segmentLength;
@@ -43,6 +48,19 @@ public class Argon2BytesGenerator
 
     public Argon2BytesGenerator()
     {
+        this(null);
+    }
+
+    /**
+     * Create a generator that fills the segments of the different lanes concurrently, using tasks run on
+     * the passed in executor. The lanes are synchronised at the end of each slice, so the output is the
+     * same as for the sequential generator.
+     *
+     * @param executor the executor to run the lane tasks on, null to fill the lanes sequentially.
+     */
+    public Argon2BytesGenerator(Executor executor)
+    {
+        this.executor = executor;
     }
 
     /**
@@ -156,6 +174,12 @@ public class Argon2BytesGenerator
 
     private void fillMemoryBlocks()
     {
+        if (executor != null && parameters.getLanes() > 1)
+        {
+            fillMemoryBlocksConcurrently();
+            return;
+        }
+
         FillBlock filler = new FillBlock();
         Position position = new Position();
         for (int pass = 0; pass < parameters.getIterations(); ++pass)
@@ -176,6 +200,48 @@ public class Argon2BytesGenerator
         }
     }
 
+    private void fillMemoryBlocksConcurrently()
+    {
+        int lanes = parameters.getLanes();
+
+        // each lane task gets its own scratch blocks and position
+        final FillBlock[] fillers = new FillBlock[lanes];
+        final Position[] positions = new Position[lanes];
+        for (int lane = 0; lane < lanes; ++lane)
+        {
+            fillers[lane] = new FillBlock();
+            positions[lane] = new Position();
+            positions[lane].lane = lane;
+        }
+
+        TaskGroup tasks = new TaskGroup(executor);
+
+        for (int pass = 0; pass < parameters.getIterations(); ++pass)
+        {
+            for (int slice = 0; slice < ARGON2_SYNC_POINTS; ++slice)
+            {
+                for (int lane = 0; lane < lanes; ++lane)
+                {
+                    final FillBlock filler = fillers[lane];
+                    final Position position = positions[lane];
+                    position.pass = pass;
+                    position.slice = slice;
+
+                    tasks.execute(new Runnable()
+                    {
+                        public void run()
+                        {
+                            fillSegment(filler, position);
+                        }
+                    });
+                }
+
+                // slice boundary: every lane's segment must be complete before the next slice starts
+                tasks.await();
+            }
+        }
+    }
+
     private void fillSegment(FillBlock filler, Position position)
     {
         Block addressBlock = null, inputBlock = null;
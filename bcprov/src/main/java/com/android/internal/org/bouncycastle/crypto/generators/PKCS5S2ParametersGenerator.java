@@ -1,5 +1,7 @@
 package com.android.internal.org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.Executor;
+
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.Mac;
@@ -8,6 +10,8 @@ import com.android.internal.org.bouncycastle.crypto.macs.HMac;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
 import com.android.internal.org.bouncycastle.crypto.util.DigestFactory;
+import com.android.internal.org.bouncycastle.util.Memoable;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * Generator for PBE derived keys and ivs as defined by PKCS 5 V2.0 Scheme 2.
@@ -20,6 +24,9 @@ import com.android.internal.org.bouncycastle.crypto.util.DigestFactory;
 public class PKCS5S2ParametersGenerator
     extends PBEParametersGenerator
 {
+    private final Digest digest;
+    private final Executor executor;
+
     private Mac hMac;
     private byte[] state;
 
@@ -33,11 +40,29 @@ public class PKCS5S2ParametersGenerator
 
     public PKCS5S2ParametersGenerator(Digest digest)
     {
+        this(digest, null);
+    }
+
+    /**
+     * Construct a PKCS5 Scheme 2 Parameters generator which, when more than one block of output is
+     * required, calculates the blocks concurrently using tasks run on the passed in executor. This
+     * requires the digest to implement Memoable, otherwise the blocks are calculated in turn.
+     *
+     * @param digest the digest to base the HMac on.
+     * @param executor the executor to run the block tasks on, null to calculate the blocks in turn.
+     */
+    public PKCS5S2ParametersGenerator(Digest digest, Executor executor)
+    {
+        this.digest = digest;
+        this.executor = executor;
+
         hMac = new HMac(digest);
         state = new byte[hMac.getMacSize()];
     }
 
-    private void F(
+    private static void F(
+        Mac     hMac,
+        byte[]  state,
         byte[]  S,
         int     c,
         byte[]  iBuf,
@@ -82,6 +107,13 @@ public class PKCS5S2ParametersGenerator
 
         CipherParameters param = new KeyParameter(password);
 
+        if (l > 1 && executor != null && digest instanceof Memoable)
+        {
+            generateBlocksConcurrently(param, l, outBytes);
+
+            return outBytes;
+        }
+
         hMac.init(param);
 
         for (int i = 1; i <= l; i++)
@@ -93,13 +125,41 @@ public class PKCS5S2ParametersGenerator
                 --pos;
             }
 
-            F(salt, iterationCount, iBuf, outBytes, outPos);
+            F(hMac, state, salt, iterationCount, iBuf, outBytes, outPos);
             outPos += hLen;
         }
 
         return outBytes;
     }
 
+    private void generateBlocksConcurrently(final CipherParameters param, int l, final byte[] outBytes)
+    {
+        final int hLen = hMac.getMacSize();
+        final byte[] S = salt;
+        final int c = iterationCount;
+
+        TaskGroup tasks = new TaskGroup(executor);
+
+        for (int i = 1; i <= l; i++)
+        {
+            // each block has its own HMac, based on a copy of the digest
+            final Mac mac = new HMac((Digest)((Memoable)digest).copy());
+            final byte[] iBuf = new byte[]{ (byte)(i >>> 24), (byte)(i >>> 16), (byte)(i >>> 8), (byte)i };
+            final int outOff = (i - 1) * hLen;
+
+            tasks.execute(new Runnable()
+            {
+                public void run()
+                {
+                    mac.init(param);
+                    F(mac, new byte[hLen], S, c, iBuf, outBytes, outOff);
+                }
+            });
+        }
+
+        tasks.await();
+    }
+
     /**
      * Generate a key parameter derived from the password, salt, and iteration
      * count we are currently initialised with.
@@ -1,5 +1,9 @@
 package com.android.internal.org.bouncycastle.crypto.generators;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 import com.android.internal.org.bouncycastle.crypto.PBEParametersGenerator;
 import com.android.internal.org.bouncycastle.crypto.digests.SHA256Digest;
 import com.android.internal.org.bouncycastle.crypto.engines.Salsa20Engine;
@@ -7,15 +11,43 @@ import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Integers;
 import com.android.internal.org.bouncycastle.util.Pack;
+import com.android.internal.org.bouncycastle.util.Properties;
+import com.android.internal.org.bouncycastle.util.TaskGroup;
 
 /**
  * Implementation of the scrypt a password-based key derivation function.
  * <p>
  * Scrypt was created by Colin Percival and is specified in <a
  * href="https://tools.ietf.org/html/rfc7914">RFC 7914 - The scrypt Password-Based Key Derivation Function</a>
+ * </p>
+ * <p>
+ * Two properties are recognised:
+ * <ul>
+ * <li>org.bouncycastle.scrypt.max_memory_mb - if set, derivations wait until the memory used by all
+ * derivations currently running would stay below this many MiB (a derivation on its own is always allowed).</li>
+ * <li>org.bouncycastle.scrypt.reuse_scratch - if set to true, scratch memory is kept in a shared pool for the
+ * next derivation with the same N and r instead of being reallocated. The memory is cleared after each use.
+ * Memory held by the pool counts towards max_memory_mb, and is given up when a derivation would otherwise
+ * have to wait for it. If max_memory_mb is not set the pool holds at most 64 MiB. releaseScratch() empties
+ * the pool.</li>
+ * </ul>
+ * </p>
  */
 public class SCrypt
 {
+    private static final String MAX_MEMORY_PROPERTY = "org.bouncycastle.scrypt.max_memory_mb";
+    private static final String REUSE_SCRATCH_PROPERTY = "org.bouncycastle.scrypt.reuse_scratch";
+
+    // the most idle scratch memory kept when max_memory_mb is not set
+    private static final long DEFAULT_POOL_LIMIT = 64L << 20;
+
+    private static final Object memoryLock = new Object();
+    private static long memoryInUse = 0;
+
+    // idle scratch chunk sets, oldest first, guarded by memoryLock
+    private static final List scratchPool = new ArrayList();
+    private static long scratchPoolBytes = 0;
+
     private SCrypt()
     {
          // not used.
@@ -35,6 +67,26 @@ public class SCrypt
      * @return the generated key.
      */
     public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    {
+        return generate(P, S, N, r, p, dkLen, null);
+    }
+
+    /**
+     * Generate a key using the scrypt key derivation function, running the p independent SMix
+     * calculations as concurrent tasks on the passed in executor.
+     *
+     * @param P     the bytes of the pass phrase.
+     * @param S     the salt to use for this invocation.
+     * @param N     CPU/Memory cost parameter. Must be larger than 1, a power of 2 and less than
+     *              <code>2^(128 * r / 8)</code>.
+     * @param r     the block size, must be &gt;= 1.
+     * @param p     Parallelization parameter. Must be a positive integer less than or equal to
+     *              <code>Integer.MAX_VALUE / (128 * r * 8)</code>.
+     * @param dkLen the length of the key to generate.
+     * @param executor the executor to run the SMix tasks on, null to run them in turn on the calling thread.
+     * @return the generated key.
+     */
+    public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor)
     {
         if (P == null)
         {
@@ -67,10 +119,65 @@ public class SCrypt
         {
             throw new IllegalArgumentException("Generated key length dkLen must be >= 1.");
         }
-        return MFcrypt(P, S, N, r, p, dkLen);
+
+        boolean concurrent = executor != null && p > 1;
+        long reserved = reserveMemory((long)N * r * 128 * (concurrent ? p : 1));
+        try
+        {
+            return MFcrypt(P, S, N, r, p, dkLen, concurrent ? executor : null);
+        }
+        finally
+        {
+            releaseMemory(reserved);
+        }
     }
 
-    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    private static long reserveMemory(long bytes)
+    {
+        long limit = (long)Properties.asInteger(MAX_MEMORY_PROPERTY, 0) << 20;
+        if (limit <= 0)
+        {
+            return 0;
+        }
+
+        synchronized (memoryLock)
+        {
+            while (memoryInUse > 0 && memoryInUse + bytes > limit)
+            {
+                try
+                {
+                    memoryLock.wait();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted waiting for scrypt memory");
+                }
+            }
+
+            memoryInUse += bytes;
+        }
+
+        return bytes;
+    }
+
+    private static void releaseMemory(long bytes)
+    {
+        if (bytes == 0)
+        {
+            return;
+        }
+
+        synchronized (memoryLock)
+        {
+            memoryInUse -= bytes;
+            memoryLock.notifyAll();
+
+            fitScratchPool();
+        }
+    }
+
+    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor)
     {
         int MFLenBytes = r * 128;
         byte[] bytes = SingleIterationPBKDF2(P, S, p * MFLenBytes);
@@ -96,11 +203,20 @@ public class SCrypt
             }
 
             int MFLenWords = MFLenBytes >>> 2;
-            for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+            int[][][] scratch = getScratch(executor != null ? p : 1, 1 << d, (N >>> d) * r * 32);
+            if (executor != null)
             {
-                // TODO These can be done in parallel threads
-                SMix(B, BOff, N, d, r);
+                SMixConcurrently(executor, B, MFLenWords, N, d, r, scratch);
+            }
+            else
+            {
+                for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+                {
+                    SMix(B, BOff, N, d, r, scratch[0]);
+                }
             }
+            // only returned on success, a failed concurrent derivation may still have tasks using its chunks
+            returnScratch(scratch);
 
             Pack.intToLittleEndian(B, bytes, 0);
 
@@ -121,7 +237,140 @@ public class SCrypt
         return key.getKey();
     }
 
-    private static void SMix(int[] B, int BOff, int N, int d, int r)
+    private static void SMixConcurrently(Executor executor, final int[] B, int MFLenWords, final int N, final int d,
+        final int r, final int[][][] scratch)
+    {
+        int count = B.length / MFLenWords;
+
+        TaskGroup tasks = new TaskGroup(executor);
+
+        for (int i = 0; i < count; ++i)
+        {
+            // each task works on its own MFLenWords section of B, with its own scratch chunks
+            final int BOff = i * MFLenWords;
+            final int[][] VV = scratch[i];
+
+            tasks.execute(new Runnable()
+            {
+                public void run()
+                {
+                    SMix(B, BOff, N, d, r, VV);
+                }
+            });
+        }
+
+        tasks.await();
+    }
+
+    /**
+     * Release the scratch memory kept for reuse when org.bouncycastle.scrypt.reuse_scratch is set.
+     */
+    public static void releaseScratch()
+    {
+        synchronized (memoryLock)
+        {
+            trimScratchPool(0);
+        }
+    }
+
+    /**
+     * Return count sets of scratch chunks, taken from the pool where possible when scratch is reused. Otherwise
+     * the chunks are left to SMix to allocate.
+     */
+    private static int[][][] getScratch(int count, int chunkCount, int chunkSize)
+    {
+        int[][][] scratch = new int[count][][];
+
+        if (!Properties.isOverrideSet(REUSE_SCRATCH_PROPERTY))
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                scratch[i] = new int[chunkCount][];
+            }
+            return scratch;
+        }
+
+        synchronized (memoryLock)
+        {
+            int taken = 0;
+            for (int i = scratchPool.size() - 1; i >= 0 && taken < count; --i)
+            {
+                int[][] VV = (int[][])scratchPool.get(i);
+                if (VV.length == chunkCount && VV[0].length == chunkSize)
+                {
+                    scratchPool.remove(i);
+                    scratchPoolBytes -= getSize(VV);
+                    scratch[taken++] = VV;
+                }
+            }
+
+            // the memory for this derivation has been reserved, make sure what is left idle still fits
+            fitScratchPool();
+        }
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (scratch[i] == null)
+            {
+                scratch[i] = new int[chunkCount][];
+                for (int c = 0; c < chunkCount; ++c)
+                {
+                    scratch[i][c] = new int[chunkSize];
+                }
+            }
+        }
+        return scratch;
+    }
+
+    // the chunks must already have been cleared
+    private static void returnScratch(int[][][] scratch)
+    {
+        if (!Properties.isOverrideSet(REUSE_SCRATCH_PROPERTY))
+        {
+            return;
+        }
+
+        synchronized (memoryLock)
+        {
+            for (int i = 0; i < scratch.length; ++i)
+            {
+                scratchPool.add(scratch[i]);
+                scratchPoolBytes += getSize(scratch[i]);
+            }
+
+            // with a memory limit the pool is fitted to it once the derivation's memory is released
+            if (Properties.asInteger(MAX_MEMORY_PROPERTY, 0) <= 0)
+            {
+                trimScratchPool(DEFAULT_POOL_LIMIT);
+            }
+        }
+    }
+
+    // drop idle chunk sets until the pool and the memory in use fit the memory limit, caller holds memoryLock
+    private static void fitScratchPool()
+    {
+        long limit = (long)Properties.asInteger(MAX_MEMORY_PROPERTY, 0) << 20;
+        if (limit > 0)
+        {
+            trimScratchPool(limit - memoryInUse);
+        }
+    }
+
+    // drop the oldest idle chunk sets until the pool holds no more than maxBytes, caller holds memoryLock
+    private static void trimScratchPool(long maxBytes)
+    {
+        while (scratchPoolBytes > maxBytes && !scratchPool.isEmpty())
+        {
+            scratchPoolBytes -= getSize((int[][])scratchPool.remove(0));
+        }
+    }
+
+    private static long getSize(int[][] VV)
+    {
+        return (long)VV.length * VV[0].length * 4;
+    }
+
+    private static void SMix(int[] B, int BOff, int N, int d, int r, int[][] VV)
     {
         int powN = Integers.numberOfTrailingZeros(N);
         int blocksPerChunk = N >>> d;
@@ -134,7 +383,6 @@ public class SCrypt
         int[] blockY = new int[BCount];
 
         int[] X = new int[BCount];
-        int[][] VV = new int[chunkCount][];
 
         try
         {
@@ -142,8 +390,12 @@ public class SCrypt
 
             for (int c = 0; c < chunkCount; ++c)
             {
-                int[] V = new int[blocksPerChunk * BCount];
-                VV[c] = V;
+                int[] V = VV[c];
+                if (V == null)
+                {
+                    V = new int[blocksPerChunk * BCount];
+                    VV[c] = V;
+                }
 
                 int off = 0;
                 for (int i = 0; i < blocksPerChunk; i += 2)
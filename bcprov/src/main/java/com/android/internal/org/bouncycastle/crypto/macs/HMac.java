@@ -1,12 +1,15 @@
 package com.android.internal.org.bouncycastle.crypto.macs;
 
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 
+import com.android.internal.org.bouncycastle.crypto.ByteBufferDigest;
+import com.android.internal.org.bouncycastle.crypto.ByteBufferMac;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.ExtendedDigest;
-import com.android.internal.org.bouncycastle.crypto.Mac;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 import com.android.internal.org.bouncycastle.util.Integers;
 import com.android.internal.org.bouncycastle.util.Memoable;
 
@@ -16,7 +19,7 @@ import com.android.internal.org.bouncycastle.util.Memoable;
  * H(K XOR opad, H(K XOR ipad, text))
  */
 public class HMac
-    implements Mac
+    implements ByteBufferMac
 {
     private final static byte IPAD = (byte)0x36;
     private final static byte OPAD = (byte)0x5C;
@@ -170,6 +173,19 @@ public class HMac
         digest.update(in, inOff, len);
     }
 
+    public void update(
+        ByteBuffer in)
+    {
+        if (digest instanceof ByteBufferDigest)
+        {
+            ((ByteBufferDigest)digest).update(in);
+        }
+        else
+        {
+            ByteBuffers.update(digest, in);
+        }
+    }
+
     public int doFinal(
         byte[] out,
         int outOff)
@@ -194,12 +194,21 @@ public class Poly1305
                 currentBlockOffset = 0;
             }
 
+            if (currentBlockOffset == 0)
+            {
+                // whole blocks with more input after them can be taken straight from the input
+                while (len - copied > BLOCK_SIZE)
+                {
+                    processBlock(in, inOff + copied, 1 << 24);
+                    copied += BLOCK_SIZE;
+                }
+            }
+
             int toCopy = Math.min((len - copied), BLOCK_SIZE - currentBlockOffset);
             System.arraycopy(in, copied + inOff, currentBlock, currentBlockOffset, toCopy);
             copied += toCopy;
             currentBlockOffset += toCopy;
         }
-
     }
 
     private void processBlock()
@@ -213,21 +222,21 @@ public class Poly1305
             }
         }
 
-        final long t0 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 0);
-        final long t1 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 4);
-        final long t2 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 8);
-        final long t3 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 12);
+        processBlock(currentBlock, 0, currentBlockOffset == BLOCK_SIZE ? (1 << 24) : 0);
+    }
+
+    private void processBlock(byte[] buf, int off, int hibit)
+    {
+        final long t0 = 0xffffffffL & Pack.littleEndianToInt(buf, off + 0);
+        final long t1 = 0xffffffffL & Pack.littleEndianToInt(buf, off + 4);
+        final long t2 = 0xffffffffL & Pack.littleEndianToInt(buf, off + 8);
+        final long t3 = 0xffffffffL & Pack.littleEndianToInt(buf, off + 12);
 
         h0 += t0 & 0x3ffffff;
         h1 += (((t1 << 32) | t0) >>> 26) & 0x3ffffff;
         h2 += (((t2 << 32) | t1) >>> 20) & 0x3ffffff;
         h3 += (((t3 << 32) | t2) >>> 14) & 0x3ffffff;
-        h4 += (t3 >>> 8);
-
-        if (currentBlockOffset == BLOCK_SIZE)
-        {
-            h4 += (1 << 24);
-        }
+        h4 += (t3 >>> 8) + hibit;
 
         long tp0 = mul32x32_64(h0,r0) + mul32x32_64(h1,s4) + mul32x32_64(h2,s3) + mul32x32_64(h3,s2) + mul32x32_64(h4,s1);
         long tp1 = mul32x32_64(h0,r1) + mul32x32_64(h1,r0) + mul32x32_64(h2,s4) + mul32x32_64(h3,s3) + mul32x32_64(h4,s2);
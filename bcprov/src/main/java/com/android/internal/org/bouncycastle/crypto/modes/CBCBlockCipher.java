@@ -4,6 +4,8 @@ import com.android.internal.org.bouncycastle.crypto.BlockCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.DefaultMultiBlockCipher;
+import com.android.internal.org.bouncycastle.crypto.MultiBlockCipher;
+import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
 import com.android.internal.org.bouncycastle.util.Arrays;
 
@@ -14,14 +16,19 @@ public class CBCBlockCipher
     extends DefaultMultiBlockCipher
     implements CBCModeCipher
 {
+    private static final int BATCH_BLOCKS = 8;
+
     private byte[]          IV;
     private byte[]          cbcV;
     private byte[]          cbcNextV;
 
     private int             blockSize;
     private BlockCipher     cipher = null;
+    private final MultiBlockCipher mbCipher;
     private boolean         encrypting;
 
+    private byte[]          cbcBlocks;
+
     /**
      * Return a new CBC mode cipher based on the passed in base cipher
      *
@@ -44,6 +51,15 @@ public class CBCBlockCipher
         this.cipher = cipher;
         this.blockSize = cipher.getBlockSize();
 
+        if (cipher instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)cipher;
+        }
+        else
+        {
+            this.mbCipher = null;
+        }
+
         this.IV = new byte[blockSize];
         this.cbcV = new byte[blockSize];
         this.cbcNextV = new byte[blockSize];
@@ -153,6 +169,74 @@ public class CBCBlockCipher
         return (encrypting) ? encryptBlock(in, inOff, out, outOff) : decryptBlock(in, inOff, out, outOff);
     }
 
+    /**
+     * Process blockCount blocks of input. When decrypting with an underlying cipher that supports
+     * multiple blocks the decryptions are handed over as a group, as only the final XOR step depends
+     * on the previous ciphertext block.
+     *
+     * @param in the array containing the input data.
+     * @param inOff offset into the in array the data starts at.
+     * @param blockCount the number of blocks to process.
+     * @param out the array the output data will be copied into.
+     * @param outOff the offset into the out array the output will start at.
+     * @exception DataLengthException if there isn't enough data in in, or
+     * space in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     * @return the number of bytes processed and produced.
+     */
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (encrypting || mbCipher == null)
+        {
+            return super.processBlocks(in, inOff, blockCount, out, outOff);
+        }
+
+        int len = blockCount * blockSize;
+        if ((inOff + len) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if ((outOff + len) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (cbcBlocks == null)
+        {
+            cbcBlocks = new byte[blockSize * BATCH_BLOCKS];
+        }
+
+        int remaining = blockCount;
+        while (remaining > 0)
+        {
+            int count = Math.min(remaining, BATCH_BLOCKS);
+            int chunk = count * blockSize;
+
+            // keep a copy of the ciphertext, in case out overlaps in, for the chaining step.
+            System.arraycopy(in, inOff, cbcBlocks, 0, chunk);
+
+            mbCipher.processBlocks(cbcBlocks, 0, count, out, outOff);
+
+            for (int i = 0; i < blockSize; i++)
+            {
+                out[outOff + i] ^= cbcV[i];
+            }
+            for (int i = blockSize; i < chunk; i++)
+            {
+                out[outOff + i] ^= cbcBlocks[i - blockSize];
+            }
+
+            System.arraycopy(cbcBlocks, chunk - blockSize, cbcV, 0, blockSize);
+
+            inOff += chunk;
+            outOff += chunk;
+            remaining -= count;
+        }
+
+        return len;
+    }
+
     /**
      * reset the chaining vector back to the IV and reset the underlying
      * cipher.
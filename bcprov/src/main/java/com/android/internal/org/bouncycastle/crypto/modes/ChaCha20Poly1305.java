@@ -1,5 +1,8 @@
 package com.android.internal.org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
+import com.android.internal.org.bouncycastle.crypto.ByteBufferCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.InvalidCipherTextException;
@@ -10,11 +13,12 @@ import com.android.internal.org.bouncycastle.crypto.macs.Poly1305;
 import com.android.internal.org.bouncycastle.crypto.params.AEADParameters;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Pack;
 
 public class ChaCha20Poly1305
-    implements AEADCipher
+    implements AEADCipher, ByteBufferCipher
 {
     private static final class State
     {
@@ -33,6 +37,8 @@ public class ChaCha20Poly1305
     private static final int KEY_SIZE = 32;
     private static final int NONCE_SIZE = 12;
     private static final int MAC_SIZE = 16;
+    private static final int BULK_SIZE = 4 * BUF_SIZE;
+    private static final int STAGING_SIZE = 16 * BUF_SIZE;
     private static final byte[] ZEROES = new byte[MAC_SIZE - 1];
 
     private static final long AAD_LIMIT = Long.MAX_VALUE - Long.MIN_VALUE;
@@ -46,6 +52,16 @@ public class ChaCha20Poly1305
     private final byte[] buf = new byte[BUF_SIZE + MAC_SIZE];
     private final byte[] mac = new byte[MAC_SIZE];
 
+    // reused for each new key stream / nonce, see initMAC() and initNonce()
+    private final KeyParameter macKey = new KeyParameter(new byte[KEY_SIZE]);
+    private final ParametersWithIV nonceParams = new ParametersWithIV(null, new byte[NONCE_SIZE]);
+
+    // staging for ByteBuffers without an accessible array, output may include a previously buffered block,
+    // allocated on first use - stagingLen is the most input staged since the last reset
+    private byte[] inStaging;
+    private byte[] outStaging;
+    private int stagingLen;
+
     private byte[] initialAAD;
 
     private long aadCount;
@@ -160,6 +176,44 @@ public class ChaCha20Poly1305
         reset(true, false);
     }
 
+    /**
+     * Re-initialise with the key from the last call to init() and a new nonce. Unlike init() this allocates
+     * nothing, so a single instance can be kept for a connection and re-initialised for each packet. Any
+     * associated text passed to init() is not re-applied.
+     *
+     * @param forEncryption true if we are setting up for encryption, false otherwise.
+     * @param nonce array holding the 96 bit nonce.
+     * @param nonceOff offset of the nonce in nonce.
+     */
+    public void initNonce(boolean forEncryption, byte[] nonce, int nonceOff)
+    {
+        if (State.UNINITIALIZED == state)
+        {
+            throw new IllegalStateException("Key must be specified in initial init");
+        }
+        if (nonceOff < 0 || nonceOff > nonce.length - NONCE_SIZE)
+        {
+            throw new IllegalArgumentException("Nonce must be 96 bits");
+        }
+
+        // Check for encryption with reused nonce
+        if (forEncryption && Arrays.areEqual(this.nonce, 0, NONCE_SIZE, nonce, nonceOff, nonceOff + NONCE_SIZE))
+        {
+            throw new IllegalArgumentException("cannot reuse nonce for ChaCha20Poly1305 encryption");
+        }
+
+        System.arraycopy(nonce, nonceOff, this.nonce, 0, NONCE_SIZE);
+
+        // nonceParams holds no key, so the engine keeps the current one
+        System.arraycopy(nonce, nonceOff, nonceParams.getIV(), 0, NONCE_SIZE);
+        chacha20.init(true, nonceParams);
+
+        this.initialAAD = null;
+        this.state = forEncryption ? State.ENC_INIT : State.DEC_INIT;
+
+        reset(true, false);
+    }
+
     public int getOutputSize(int len)
     {
         int total = Math.max(0, len) + bufPos;
@@ -275,6 +329,23 @@ public class ChaCha20Poly1305
         }
     }
 
+    public int processBytes(ByteBuffer input, ByteBuffer output) throws DataLengthException
+    {
+        checkData();
+
+        if (!input.hasArray() || !output.hasArray())
+        {
+            if (inStaging == null)
+            {
+                inStaging = new byte[STAGING_SIZE];
+                outStaging = new byte[STAGING_SIZE + BUF_SIZE];
+            }
+            stagingLen = Math.max(stagingLen, Math.min(input.remaining(), STAGING_SIZE));
+        }
+
+        return ByteBuffers.processBytes(this, input, output, inStaging, outStaging);
+    }
+
     public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff) throws DataLengthException
     {
         if (null == in)
@@ -316,18 +387,54 @@ public class ChaCha20Poly1305
         {
         case State.DEC_DATA:
         {
-            for (int i = 0; i < len; ++i)
+            int available = buf.length - bufPos;
+            if (len < available)
             {
-                buf[bufPos] = in[inOff + i];
-                if (++bufPos == buf.length)
+                System.arraycopy(in, inOff, buf, bufPos, len);
+                this.bufPos += len;
+                break;
+            }
+
+            if (bufPos >= BUF_SIZE)
+            {
+                poly1305.update(buf, 0, BUF_SIZE);
+                processData(buf, 0, BUF_SIZE, out, outOff);
+                System.arraycopy(buf, BUF_SIZE, buf, 0, bufPos - BUF_SIZE);
+                this.bufPos -= BUF_SIZE;
+                resultLen = BUF_SIZE;
+
+                if (len < buf.length - bufPos)
                 {
-                    poly1305.update(buf, 0, BUF_SIZE);
-                    processData(buf, 0, BUF_SIZE, out, outOff + resultLen);
-                    System.arraycopy(buf, BUF_SIZE, buf, 0, MAC_SIZE);
-                    this.bufPos = MAC_SIZE;
-                    resultLen += BUF_SIZE;
+                    System.arraycopy(in, inOff, buf, bufPos, len);
+                    this.bufPos += len;
+                    break;
                 }
             }
+
+            if (bufPos > 0)
+            {
+                int fill = BUF_SIZE - bufPos;
+                System.arraycopy(in, inOff, buf, bufPos, fill);
+                poly1305.update(buf, 0, BUF_SIZE);
+                processData(buf, 0, BUF_SIZE, out, outOff + resultLen);
+                inOff += fill;
+                len -= fill;
+                resultLen += BUF_SIZE;
+            }
+
+            // the last MAC_SIZE bytes might be the tag, so they are always held back
+            while (len - MAC_SIZE >= BUF_SIZE)
+            {
+                int blocksLen = Math.min(len - MAC_SIZE, BULK_SIZE) & -BUF_SIZE;
+                poly1305.update(in, inOff, blocksLen);
+                processData(in, inOff, blocksLen, out, outOff + resultLen);
+                inOff += blocksLen;
+                len -= blocksLen;
+                resultLen += blocksLen;
+            }
+
+            System.arraycopy(in, inOff, buf, 0, len);
+            this.bufPos = len;
             break;
         }
         case State.ENC_DATA:
@@ -349,13 +456,15 @@ public class ChaCha20Poly1305
                 }
             }
 
+            // up to BULK_SIZE at a time, so the MAC reads the cipher text while it is still in the cache
             while (len >= BUF_SIZE)
             {
-                processData(in, inOff, BUF_SIZE, out, outOff + resultLen);
-                poly1305.update(out, outOff + resultLen, BUF_SIZE);
-                inOff += BUF_SIZE;
-                len -= BUF_SIZE;
-                resultLen += BUF_SIZE;
+                int blocksLen = Math.min(len, BULK_SIZE) & -BUF_SIZE;
+                processData(in, inOff, blocksLen, out, outOff + resultLen);
+                poly1305.update(out, outOff + resultLen, blocksLen);
+                inOff += blocksLen;
+                len -= blocksLen;
+                resultLen += blocksLen;
             }
 
             if (len > 0)
@@ -512,10 +621,10 @@ public class ChaCha20Poly1305
     {
         padMAC(dataCount);
 
-        byte[] lengths = new byte[16];
-        Pack.longToLittleEndian(aadCount, lengths, 0);
-        Pack.longToLittleEndian(dataCount, lengths, 8);
-        poly1305.update(lengths, 0, 16);
+        // mac is free until doFinal() is called, so use it for the lengths block
+        Pack.longToLittleEndian(aadCount, mac, 0);
+        Pack.longToLittleEndian(dataCount, mac, 8);
+        poly1305.update(mac, 0, 16);
 
         poly1305.doFinal(mac, 0);
 
@@ -534,15 +643,18 @@ public class ChaCha20Poly1305
 
     private void initMAC()
     {
-        byte[] firstBlock = new byte[64];
+        // buf is always empty here, so the first key stream block can be generated in it
+        byte[] macKeyBytes = macKey.getKey();
         try
         {
-            chacha20.processBytes(firstBlock, 0, 64, firstBlock, 0);
-            poly1305.init(new KeyParameter(firstBlock, 0, 32));
+            chacha20.processBytes(buf, 0, 64, buf, 0);
+            System.arraycopy(buf, 0, macKeyBytes, 0, 32);
+            poly1305.init(macKey);
         }
         finally
         {
-            Arrays.clear(firstBlock);
+            Arrays.clear(buf);
+            Arrays.clear(macKeyBytes);
         }
     }
 
@@ -571,6 +683,13 @@ public class ChaCha20Poly1305
     {
         Arrays.clear(buf);
 
+        if (stagingLen > 0)
+        {
+            Arrays.fill(inStaging, 0, stagingLen, (byte)0);
+            Arrays.fill(outStaging, 0, stagingLen + BUF_SIZE, (byte)0);
+            stagingLen = 0;
+        }
+
         if (clearMac)
         {
             Arrays.clear(mac);
@@ -1,18 +1,24 @@
 package com.android.internal.org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
 import com.android.internal.org.bouncycastle.crypto.BlockCipher;
+import com.android.internal.org.bouncycastle.crypto.ByteBufferCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.InvalidCipherTextException;
+import com.android.internal.org.bouncycastle.crypto.MultiBlockCipher;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.crypto.modes.gcm.BasicGCMExponentiator;
 import com.android.internal.org.bouncycastle.crypto.modes.gcm.GCMExponentiator;
 import com.android.internal.org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
 import com.android.internal.org.bouncycastle.crypto.modes.gcm.GCMUtil;
+import com.android.internal.org.bouncycastle.crypto.modes.gcm.Tables4kGCMAggregator;
 import com.android.internal.org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
 import com.android.internal.org.bouncycastle.crypto.params.AEADParameters;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 import com.android.internal.org.bouncycastle.util.Arrays;
 import com.android.internal.org.bouncycastle.util.Pack;
 
@@ -21,15 +27,24 @@ import com.android.internal.org.bouncycastle.util.Pack;
  * NIST Special Publication 800-38D.
  */
 public class GCMBlockCipher
-    implements GCMModeCipher
+    implements GCMModeCipher, ByteBufferCipher
 {
     private static final int BLOCK_SIZE = 16;
 
+    // number of blocks handled together by the bulk encrypt/decrypt path
+    private static final int BULK_BLOCKS = Tables4kGCMAggregator.BLOCKS;
+    private static final int BULK_SIZE = BULK_BLOCKS * BLOCK_SIZE;
+    private static final int STAGING_SIZE = 16 * BULK_SIZE;
+
     // not final due to a compiler bug
     private BlockCipher   cipher;
+    private MultiBlockCipher mbCipher;
     private GCMMultiplier multiplier;
     private GCMExponentiator exp;
 
+    // only used with the default 4k tables multiplier
+    private Tables4kGCMAggregator aggregator;
+
     // These fields are set by init and not modified by processing
     private boolean             forEncryption;
     private boolean             initialised;
@@ -53,6 +68,17 @@ public class GCMBlockCipher
     private long        atLength;
     private long        atLengthPre;
 
+    // scratch space, contents are not preserved between calls
+    private final byte[] ctrBlock = new byte[BLOCK_SIZE];
+    private final byte[] ctrBlocks = new byte[BULK_SIZE];
+    private final byte[] counterBlocks = new byte[BULK_SIZE];
+
+    // staging for ByteBuffers without an accessible array, decryption may release a held back block,
+    // allocated on first use - stagingLen is the most input staged since the last reset
+    private byte[] inStaging;
+    private byte[] outStaging;
+    private int stagingLen;
+
     /**
      * Return a new GCM mode cipher based on the passed in base cipher
      *
@@ -107,6 +133,16 @@ public class GCMBlockCipher
 
         this.cipher = c;
         this.multiplier = m;
+
+        if (c instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)c;
+        }
+
+        if (m instanceof Tables4kGCMMultiplier)
+        {
+            this.aggregator = new Tables4kGCMAggregator();
+        }
     }
 
     public BlockCipher getUnderlyingCipher()
@@ -206,6 +242,11 @@ public class GCMBlockCipher
             // GCMMultiplier tables don't change unless the key changes (and are expensive to init)
             multiplier.init(H);
             exp = null;
+
+            if (aggregator != null)
+            {
+                aggregator.init(H);
+            }
         }
         else if (this.H == null)
         {
@@ -374,6 +415,24 @@ public class GCMBlockCipher
         return 0;
     }
 
+    public int processBytes(ByteBuffer input, ByteBuffer output)
+        throws DataLengthException
+    {
+        checkStatus();
+
+        if (!input.hasArray() || !output.hasArray())
+        {
+            if (inStaging == null)
+            {
+                inStaging = new byte[STAGING_SIZE];
+                outStaging = new byte[STAGING_SIZE + BLOCK_SIZE];
+            }
+            stagingLen = Math.max(stagingLen, Math.min(input.remaining(), STAGING_SIZE));
+        }
+
+        return ByteBuffers.processBytes(this, input, output, inStaging, outStaging);
+    }
+
     public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         throws DataLengthException
     {
@@ -408,6 +467,14 @@ public class GCMBlockCipher
 
             int inLimit = inOff + len - BLOCK_SIZE;
 
+            int bulkLimit = inLimit - (BULK_SIZE - BLOCK_SIZE);
+            while (inOff <= bulkLimit && hasBlocksRemaining(BULK_BLOCKS))
+            {
+                encryptBlocks(in, inOff, out, outOff + resultLen);
+                inOff += BULK_SIZE;
+                resultLen += BULK_SIZE;
+            }
+
             while (inOff <= inLimit)
             {
                 encryptBlock(in, inOff, out, outOff + resultLen);
@@ -452,6 +519,14 @@ public class GCMBlockCipher
             resultLen += BLOCK_SIZE;
             //bufOff = 0;
 
+            int bulkLimit = inLimit - (BULK_SIZE - BLOCK_SIZE);
+            while (inOff <= bulkLimit && hasBlocksRemaining(BULK_BLOCKS))
+            {
+                decryptBlocks(in, inOff, out, outOff + resultLen);
+                inOff += BULK_SIZE;
+                resultLen += BULK_SIZE;
+            }
+
             while (inOff <= inLimit)
             {
                 decryptBlock(in, inOff, out, outOff + resultLen);
@@ -614,6 +689,12 @@ public class GCMBlockCipher
         {
             Arrays.fill(bufBlock, (byte)0);
         }
+        if (stagingLen > 0)
+        {
+            Arrays.fill(inStaging, 0, stagingLen, (byte)0);
+            Arrays.fill(outStaging, 0, stagingLen + BLOCK_SIZE, (byte)0);
+            stagingLen = 0;
+        }
 
         if (clearMac)
         {
@@ -644,7 +725,6 @@ public class GCMBlockCipher
             initCipher();
         }
 
-        byte[] ctrBlock = new byte[BLOCK_SIZE];
         getNextCTRBlock(ctrBlock);
 
         gHASHBlock(S, buf, bufOff);
@@ -653,6 +733,29 @@ public class GCMBlockCipher
         totalLength += BLOCK_SIZE;
     }
 
+    private void decryptBlocks(byte[] buf, int bufOff, byte[] out, int outOff)
+    {
+        if ((out.length - outOff) < BULK_SIZE)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks(ctrBlocks);
+
+        // the hash is over the cipher text, so it must be taken before any output is written
+        gHASHBlocks(S, buf, bufOff);
+        for (int i = 0; i < BULK_SIZE; i += BLOCK_SIZE)
+        {
+            GCMUtil.xor(ctrBlocks, i, buf, bufOff + i, out, outOff + i);
+        }
+
+        totalLength += BULK_SIZE;
+    }
+
     private void encryptBlock(byte[] buf, int bufOff, byte[] out, int outOff)
     {
         if ((out.length - outOff) < BLOCK_SIZE)
@@ -664,8 +767,6 @@ public class GCMBlockCipher
             initCipher();
         }
 
-        byte[] ctrBlock = new byte[BLOCK_SIZE];
-
         getNextCTRBlock(ctrBlock);
         GCMUtil.xor(ctrBlock, buf, bufOff);
         gHASHBlock(S, ctrBlock);
@@ -674,9 +775,27 @@ public class GCMBlockCipher
         totalLength += BLOCK_SIZE;
     }
 
+    private void encryptBlocks(byte[] buf, int bufOff, byte[] out, int outOff)
+    {
+        if ((out.length - outOff) < BULK_SIZE)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks(ctrBlocks);
+        GCMUtil.xor(ctrBlocks, 0, buf, bufOff, BULK_SIZE);
+        gHASHBlocks(S, ctrBlocks, 0);
+        System.arraycopy(ctrBlocks, 0, out, outOff, BULK_SIZE);
+
+        totalLength += BULK_SIZE;
+    }
+
     private void processPartial(byte[] buf, int off, int len, byte[] out, int outOff)
     {
-        byte[] ctrBlock = new byte[BLOCK_SIZE];
         getNextCTRBlock(ctrBlock);
 
         if (forEncryption)
@@ -721,6 +840,21 @@ public class GCMBlockCipher
         multiplier.multiplyH(Y);
     }
 
+    private void gHASHBlocks(byte[] Y, byte[] b, int off)
+    {
+        if (aggregator != null)
+        {
+            aggregator.hashBlocks(Y, b, off);
+        }
+        else
+        {
+            for (int i = 0; i < BULK_SIZE; i += BLOCK_SIZE)
+            {
+                gHASHBlock(Y, b, off + i);
+            }
+        }
+    }
+
     private void getNextCTRBlock(byte[] block)
     {
         if (blocksRemaining == 0)
@@ -738,6 +872,40 @@ public class GCMBlockCipher
         cipher.processBlock(counter, 0, block, 0);
     }
 
+    private boolean hasBlocksRemaining(int count)
+    {
+        // blocksRemaining counts down as an unsigned value, 0 meaning none are left
+        return (blocksRemaining & 0xFFFFFFFFL) >= count;
+    }
+
+    private void getNextCTRBlocks(byte[] blocks)
+    {
+        blocksRemaining -= BULK_BLOCKS;
+
+        for (int off = 0; off < BULK_SIZE; off += BLOCK_SIZE)
+        {
+            int c = 1;
+            c += counter[15] & 0xFF; counter[15] = (byte)c; c >>>= 8;
+            c += counter[14] & 0xFF; counter[14] = (byte)c; c >>>= 8;
+            c += counter[13] & 0xFF; counter[13] = (byte)c; c >>>= 8;
+            c += counter[12] & 0xFF; counter[12] = (byte)c;
+
+            System.arraycopy(counter, 0, counterBlocks, off, BLOCK_SIZE);
+        }
+
+        if (mbCipher != null)
+        {
+            mbCipher.processBlocks(counterBlocks, 0, BULK_BLOCKS, blocks, 0);
+        }
+        else
+        {
+            for (int off = 0; off < BULK_SIZE; off += BLOCK_SIZE)
+            {
+                cipher.processBlock(counterBlocks, off, blocks, off);
+            }
+        }
+    }
+
     private void checkStatus()
     {
         if (!initialised)
@@ -1,8 +1,13 @@
 package com.android.internal.org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 import com.android.internal.org.bouncycastle.crypto.BlockCipher;
+import com.android.internal.org.bouncycastle.crypto.ByteBufferCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
+import com.android.internal.org.bouncycastle.crypto.MultiBlockCipher;
 import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
 import com.android.internal.org.bouncycastle.crypto.StreamBlockCipher;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
@@ -15,9 +20,12 @@ import com.android.internal.org.bouncycastle.util.Pack;
  */
 public class SICBlockCipher
     extends StreamBlockCipher
-    implements CTRModeCipher
+    implements CTRModeCipher, ByteBufferCipher
 {
+    private static final int BATCH_BLOCKS = 8;
+
     private final BlockCipher     cipher;
+    private final MultiBlockCipher mbCipher;
     private final int             blockSize;
 
     private byte[]          IV;
@@ -25,6 +33,9 @@ public class SICBlockCipher
     private byte[]          counterOut;
     private int             byteCount;
 
+    private byte[]          counterBlocks;
+    private byte[]          keyStreamBlocks;
+
     /**
      * Return a new SIC/CTR mode cipher based on the passed in base cipher
      *
@@ -51,6 +62,17 @@ public class SICBlockCipher
         this.counter = new byte[blockSize];
         this.counterOut = new byte[blockSize];
         this.byteCount = 0;
+
+        if (c instanceof MultiBlockCipher)
+        {
+            this.mbCipher = (MultiBlockCipher)c;
+            this.counterBlocks = new byte[blockSize * BATCH_BLOCKS];
+            this.keyStreamBlocks = new byte[blockSize * BATCH_BLOCKS];
+        }
+        else
+        {
+            this.mbCipher = null;
+        }
     }
 
     public void init(
@@ -126,6 +148,29 @@ public class SICBlockCipher
         return blockSize;
     }
 
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (byteCount != 0 || mbCipher == null)
+        {
+            return super.processBlocks(in, inOff, blockCount, out, outOff);
+        }
+
+        int len = blockCount * blockSize;
+        if (inOff + len > in.length)
+        {
+            throw new DataLengthException("input buffer too small");
+        }
+        if (outOff + len > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        processCounterBlocks(in, inOff, blockCount, out, outOff, false);
+
+        return len;
+    }
+
     public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         throws DataLengthException
     {
@@ -138,7 +183,30 @@ public class SICBlockCipher
             throw new OutputLengthException("output buffer too short");
         }
 
-        for (int i = 0; i < len; ++i)
+        int pos = 0;
+        if (mbCipher != null)
+        {
+            // use up any key stream left from a previous call before switching to whole blocks
+            while (byteCount != 0 && pos < len)
+            {
+                out[outOff + pos] = (byte)(in[inOff + pos] ^ counterOut[byteCount++]);
+                if (byteCount == counter.length)
+                {
+                    byteCount = 0;
+                    incrementCounter();
+                }
+                ++pos;
+            }
+
+            int blockCount = (len - pos) / blockSize;
+            if (blockCount > 0)
+            {
+                processCounterBlocks(in, inOff + pos, blockCount, out, outOff + pos, true);
+                pos += blockCount * blockSize;
+            }
+        }
+
+        for (int i = pos; i < len; ++i)
         {
             byte next;
 
@@ -164,6 +232,71 @@ public class SICBlockCipher
         return len;
     }
 
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int len = in.remaining();
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (in.hasArray() && out.hasArray())
+        {
+            processBytes(in.array(), in.arrayOffset() + in.position(), len, out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + len);
+            return len;
+        }
+
+        ByteBuffer src = in.duplicate().order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer dst = out.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+        // use up any key stream left from a previous call before switching to whole blocks
+        while (byteCount != 0 && src.hasRemaining())
+        {
+            dst.put((byte)(src.get() ^ counterOut[byteCount++]));
+            if (byteCount == counter.length)
+            {
+                byteCount = 0;
+                incrementCounter();
+            }
+        }
+
+        int blockCount = src.remaining() / blockSize;
+        if (mbCipher != null)
+        {
+            processCounterBlocks(src, blockCount, dst);
+        }
+        else
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                checkLastIncrement();
+
+                cipher.processBlock(counter, 0, counterOut, 0);
+                xorKeyStream(src, dst, counterOut, blockSize);
+                incrementCounter();
+            }
+        }
+
+        if (src.hasRemaining())
+        {
+            checkLastIncrement();
+
+            cipher.processBlock(counter, 0, counterOut, 0);
+            while (src.hasRemaining())
+            {
+                dst.put((byte)(src.get() ^ counterOut[byteCount++]));
+            }
+        }
+
+        in.position(src.position());
+        out.position(dst.position());
+
+        return len;
+    }
+
     protected byte calculateByte(byte in)
           throws DataLengthException, IllegalStateException
     {
@@ -187,6 +320,88 @@ public class SICBlockCipher
         return rv;
     }
 
+    /**
+     * Generate the key stream for blockCount whole blocks, BATCH_BLOCKS at a time, using the
+     * underlying cipher's multi-block support. byteCount must be zero on entry and remains so.
+     */
+    private void processCounterBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff, boolean checkIncrement)
+    {
+        while (blockCount > 0)
+        {
+            int count = generateKeyStreamBlocks(Math.min(blockCount, BATCH_BLOCKS), checkIncrement);
+
+            int len = count * blockSize;
+            for (int i = 0; i < len; ++i)
+            {
+                out[outOff + i] = (byte)(in[inOff + i] ^ keyStreamBlocks[i]);
+            }
+
+            inOff += len;
+            outOff += len;
+            blockCount -= count;
+        }
+    }
+
+    /**
+     * ByteBuffer version of processCounterBlocks(), in and out must be big endian.
+     */
+    private void processCounterBlocks(ByteBuffer in, int blockCount, ByteBuffer out)
+    {
+        while (blockCount > 0)
+        {
+            int count = generateKeyStreamBlocks(Math.min(blockCount, BATCH_BLOCKS), true);
+
+            xorKeyStream(in, out, keyStreamBlocks, count * blockSize);
+
+            blockCount -= count;
+        }
+    }
+
+    /**
+     * Fill keyStreamBlocks with the key stream for up to batch blocks, returning the number of blocks
+     * generated - fewer only if the counter ran out, in which case the last increment check throws.
+     */
+    private int generateKeyStreamBlocks(int batch, boolean checkIncrement)
+    {
+        int count = 0;
+        while (count < batch)
+        {
+            if (checkIncrement && IV.length < blockSize && counter[IV.length - 1] != IV[IV.length - 1])
+            {
+                break;
+            }
+
+            System.arraycopy(counter, 0, counterBlocks, count * blockSize, blockSize);
+            incrementCounter();
+            ++count;
+        }
+
+        if (count > 0)
+        {
+            mbCipher.processBlocks(counterBlocks, 0, count, keyStreamBlocks, 0);
+        }
+
+        if (count < batch)
+        {
+            checkLastIncrement();
+        }
+
+        return count;
+    }
+
+    private static void xorKeyStream(ByteBuffer in, ByteBuffer out, byte[] keyStream, int len)
+    {
+        int i = 0;
+        for (; i <= len - 8; i += 8)
+        {
+            out.putLong(in.getLong() ^ Pack.bigEndianToLong(keyStream, i));
+        }
+        for (; i < len; ++i)
+        {
+            out.put((byte)(in.get() ^ keyStream[i]));
+        }
+    }
+
     private void checkCounter()
     {
         // if the IV is the same as the blocksize we assume the user knows what they are doing
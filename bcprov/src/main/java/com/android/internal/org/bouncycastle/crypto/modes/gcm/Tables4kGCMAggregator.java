@@ -0,0 +1,117 @@
+package com.android.internal.org.bouncycastle.crypto.modes.gcm;
+
+import com.android.internal.org.bouncycastle.util.Pack;
+
+/**
+ * GHASH over several blocks at once using 4k tables for each of H^4, H^3, H^2 and H.
+ * <p>
+ * The GHASH recurrence for four blocks, Y = ((((Y + X1).H + X2).H + X3).H + X4).H, is rewritten as
+ * Y = (Y + X1).H^4 + X2.H^3 + X3.H^2 + X4.H. As the per-byte reduction step is linear, the four table
+ * lookups at each byte position share a single reduction chain rather than running four dependent
+ * multiplications.
+ * </p>
+ */
+public class Tables4kGCMAggregator
+{
+    /**
+     * The number of blocks handled by each call to {@link #hashBlocks(byte[], byte[], int)}.
+     */
+    public static final int BLOCKS = 4;
+
+    private byte[] H;
+    private long[] T;
+
+    public void init(byte[] H)
+    {
+        if (T == null)
+        {
+            // BLOCKS tables of 256 entries of 2 longs, ordered H^4, H^3, H^2, H
+            T = new long[BLOCKS * 512];
+        }
+        else if (0 != GCMUtil.areEqual(this.H, H))
+        {
+            return;
+        }
+
+        this.H = new byte[GCMUtil.SIZE_BYTES];
+        GCMUtil.copy(H, this.H);
+
+        long[] h = GCMUtil.asLongs(this.H);
+        long[] hPow = new long[GCMUtil.SIZE_LONGS];
+        GCMUtil.copy(h, hPow);
+
+        long[] t1 = new long[GCMUtil.SIZE_LONGS];
+        long[] tn = new long[GCMUtil.SIZE_LONGS];
+
+        for (int i = BLOCKS - 1; i >= 0; --i)
+        {
+            if (i < BLOCKS - 1)
+            {
+                GCMUtil.multiply(hPow, h);
+            }
+
+            int base = i * 512;
+
+            // T[0] = 0
+
+            // T[1] = H^k.p^7
+            GCMUtil.multiplyP7(hPow, t1);
+            T[base + 2] = t1[0];
+            T[base + 3] = t1[1];
+
+            for (int n = 2; n < 256; n += 2)
+            {
+                // T[2.n] = T[n].p^-1
+                int src = base + n;
+                tn[0] = T[src];
+                tn[1] = T[src + 1];
+                GCMUtil.divideP(tn, tn);
+
+                int dst = base + (n << 1);
+                T[dst] = tn[0];
+                T[dst + 1] = tn[1];
+
+                // T[2.n + 1] = T[2.n] + T[1]
+                T[dst + 2] = tn[0] ^ t1[0];
+                T[dst + 3] = tn[1] ^ t1[1];
+            }
+        }
+    }
+
+    /**
+     * Fold BLOCKS consecutive 16 byte blocks from x, starting at xOff, into the GHASH value Y.
+     *
+     * @param Y the current hash value, updated in place.
+     * @param x the array containing the blocks.
+     * @param xOff the offset of the first block in x.
+     */
+    public void hashBlocks(byte[] Y, byte[] x, int xOff)
+    {
+        long[] T = this.T;
+
+        int x1 = xOff, x2 = xOff + 16, x3 = xOff + 32, x4 = xOff + 48;
+
+        int i1 =        (((Y[15] ^ x[x1 + 15]) & 0xFF) << 1);
+        int i2 =  512 + ((x[x2 + 15] & 0xFF) << 1);
+        int i3 = 1024 + ((x[x3 + 15] & 0xFF) << 1);
+        int i4 = 1536 + ((x[x4 + 15] & 0xFF) << 1);
+
+        long z0 = T[i1] ^ T[i2] ^ T[i3] ^ T[i4];
+        long z1 = T[i1 + 1] ^ T[i2 + 1] ^ T[i3 + 1] ^ T[i4 + 1];
+
+        for (int i = 14; i >= 0; --i)
+        {
+            i1 =        (((Y[i] ^ x[x1 + i]) & 0xFF) << 1);
+            i2 =  512 + ((x[x2 + i] & 0xFF) << 1);
+            i3 = 1024 + ((x[x3 + i] & 0xFF) << 1);
+            i4 = 1536 + ((x[x4 + i] & 0xFF) << 1);
+
+            long c = z1 << 56;
+            z1 = T[i1 + 1] ^ T[i2 + 1] ^ T[i3 + 1] ^ T[i4 + 1] ^ ((z1 >>> 8) | (z0 << 56));
+            z0 = T[i1] ^ T[i2] ^ T[i3] ^ T[i4] ^ (z0 >>> 8) ^ c ^ (c >>> 1) ^ (c >>> 2) ^ (c >>> 7);
+        }
+
+        Pack.longToBigEndian(z0, Y, 0);
+        Pack.longToBigEndian(z1, Y, 8);
+    }
+}
@@ -0,0 +1,100 @@
+package com.android.internal.org.bouncycastle.crypto.signers;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
+import com.android.internal.org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
+import com.android.internal.org.bouncycastle.math.ec.rfc8032.Ed25519;
+import com.android.internal.org.bouncycastle.util.Arrays;
+
+/**
+ * Collects pure Ed25519 (no context, no pre-hash) signatures and verifies them together, sharing the
+ * point doublings across the whole batch. If the batch as a whole fails, each signature is checked on its
+ * own so the individual results are still available.
+ */
+public class Ed25519BatchVerifier
+{
+    private final List sigs = new ArrayList();
+    private final List pks = new ArrayList();
+    private final List msgs = new ArrayList();
+
+    private final SecureRandom random;
+
+    private boolean[] results;
+
+    public Ed25519BatchVerifier()
+    {
+        this(null);
+    }
+
+    public Ed25519BatchVerifier(SecureRandom random)
+    {
+        this.random = CryptoServicesRegistrar.getSecureRandom(random);
+    }
+
+    /**
+     * Add a signature to the batch.
+     *
+     * @param publicKey the key the signature is to be verified against.
+     * @param msg the signed message.
+     * @param sig the signature.
+     */
+    public void add(Ed25519PublicKeyParameters publicKey, byte[] msg, byte[] sig)
+    {
+        pks.add(publicKey.getEncoded());
+        msgs.add(Arrays.clone(msg));
+        sigs.add(Arrays.clone(sig));
+        results = null;
+    }
+
+    /**
+     * Return the number of signatures currently in the batch.
+     */
+    public int size()
+    {
+        return sigs.size();
+    }
+
+    /**
+     * Verify all the signatures added since the last reset.
+     *
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public boolean verify()
+    {
+        int count = sigs.size();
+
+        byte[][] sigArray = (byte[][])sigs.toArray(new byte[count][]);
+        byte[][] pkArray = (byte[][])pks.toArray(new byte[count][]);
+        byte[][] msgArray = (byte[][])msgs.toArray(new byte[count][]);
+
+        results = new boolean[count];
+
+        return Ed25519.verifyBatch(sigArray, pkArray, msgArray, random, results);
+    }
+
+    /**
+     * Return whether the signature at the given position in the batch was valid.
+     *
+     * @param index the position of the signature, in the order it was added.
+     * @return true if the signature was valid, false otherwise.
+     */
+    public boolean isValid(int index)
+    {
+        if (results == null)
+        {
+            throw new IllegalStateException("batch not verified");
+        }
+        return results[index];
+    }
+
+    public void reset()
+    {
+        sigs.clear();
+        pks.clear();
+        msgs.clear();
+        results = null;
+    }
+}
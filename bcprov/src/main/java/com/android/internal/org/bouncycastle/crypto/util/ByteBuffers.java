@@ -0,0 +1,260 @@
+package com.android.internal.org.bouncycastle.crypto.util;
+
+import java.nio.ByteBuffer;
+
+import com.android.internal.org.bouncycastle.crypto.BufferedBlockCipher;
+import com.android.internal.org.bouncycastle.crypto.DataLengthException;
+import com.android.internal.org.bouncycastle.crypto.Digest;
+import com.android.internal.org.bouncycastle.crypto.Mac;
+import com.android.internal.org.bouncycastle.crypto.OutputLengthException;
+import com.android.internal.org.bouncycastle.crypto.StreamCipher;
+import com.android.internal.org.bouncycastle.crypto.modes.AEADCipher;
+import com.android.internal.org.bouncycastle.util.Arrays;
+
+/**
+ * Utility methods for passing the contents of a ByteBuffer through the byte[] based digest, MAC and cipher
+ * interfaces. Buffers with an accessible backing array are passed through without copying, other buffers,
+ * such as direct buffers, are copied through a staging array of bounded size.
+ * <p>
+ * These methods always use the byte[] interfaces - callers wanting to use a ByteBufferDigest, ByteBufferMac,
+ * or ByteBufferCipher where one is available should check for it first.
+ * </p>
+ */
+public class ByteBuffers
+{
+    private static final int STAGING_SIZE = 4096;
+
+    private ByteBuffers()
+    {
+    }
+
+    /**
+     * Update digest with the remaining bytes in input.
+     *
+     * @param digest the digest to update.
+     * @param input the buffer containing the data, its position is advanced to its limit.
+     */
+    public static void update(Digest digest, ByteBuffer input)
+    {
+        int len = input.remaining();
+        if (input.hasArray())
+        {
+            digest.update(input.array(), input.arrayOffset() + input.position(), len);
+            input.position(input.limit());
+            return;
+        }
+
+        byte[] staging = new byte[Math.min(len, STAGING_SIZE)];
+        while (len > 0)
+        {
+            int count = Math.min(len, staging.length);
+            input.get(staging, 0, count);
+            digest.update(staging, 0, count);
+            len -= count;
+        }
+        Arrays.fill(staging, (byte)0);
+    }
+
+    /**
+     * Update mac with the remaining bytes in input.
+     *
+     * @param mac the MAC to update.
+     * @param input the buffer containing the data, its position is advanced to its limit.
+     */
+    public static void update(Mac mac, ByteBuffer input)
+    {
+        int len = input.remaining();
+        if (input.hasArray())
+        {
+            mac.update(input.array(), input.arrayOffset() + input.position(), len);
+            input.position(input.limit());
+            return;
+        }
+
+        byte[] staging = new byte[Math.min(len, STAGING_SIZE)];
+        while (len > 0)
+        {
+            int count = Math.min(len, staging.length);
+            input.get(staging, 0, count);
+            mac.update(staging, 0, count);
+            len -= count;
+        }
+        Arrays.fill(staging, (byte)0);
+    }
+
+    /**
+     * Process the remaining bytes in input using a stream cipher, writing the result to output.
+     *
+     * @param cipher the cipher to use.
+     * @param input the buffer containing the input, its position is advanced to its limit.
+     * @param output the buffer to write to, its position is advanced by the number of bytes written.
+     * @return the number of bytes written to output.
+     */
+    public static int processBytes(StreamCipher cipher, ByteBuffer input, ByteBuffer output)
+        throws DataLengthException
+    {
+        int len = input.remaining();
+        if (output.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (input.hasArray() && output.hasArray())
+        {
+            cipher.processBytes(input.array(), input.arrayOffset() + input.position(), len,
+                output.array(), output.arrayOffset() + output.position());
+            input.position(input.limit());
+            output.position(output.position() + len);
+            return len;
+        }
+
+        // a stream cipher produces exactly as much output as input, so one array will do for both
+        byte[] staging = new byte[Math.min(len, STAGING_SIZE)];
+        for (int remaining = len; remaining > 0;)
+        {
+            int count = Math.min(remaining, staging.length);
+            input.get(staging, 0, count);
+            cipher.processBytes(staging, 0, count, staging, 0);
+            output.put(staging, 0, count);
+            remaining -= count;
+        }
+        Arrays.fill(staging, (byte)0);
+
+        return len;
+    }
+
+    /**
+     * Process the remaining bytes in input using an AEAD cipher, writing any output produced to output.
+     *
+     * @param cipher the cipher to use.
+     * @param input the buffer containing the input, its position is advanced to its limit.
+     * @param output the buffer to write to, its position is advanced by the number of bytes written.
+     * @return the number of bytes written to output.
+     */
+    public static int processBytes(AEADCipher cipher, ByteBuffer input, ByteBuffer output)
+        throws DataLengthException
+    {
+        return processBytes(cipher, input, output, null, null);
+    }
+
+    /**
+     * Process the remaining bytes in input using an AEAD cipher, writing any output produced to output. If
+     * either buffer lacks an accessible array the data is copied through the passed in staging arrays, which
+     * allows a caller processing many buffers to avoid allocating new ones each time.
+     *
+     * @param cipher the cipher to use.
+     * @param input the buffer containing the input, its position is advanced to its limit.
+     * @param output the buffer to write to, its position is advanced by the number of bytes written.
+     * @param inStaging staging array for input, null if one should be allocated.
+     * @param outStaging staging array for output, null if one should be allocated.
+     * @return the number of bytes written to output.
+     */
+    public static int processBytes(AEADCipher cipher, ByteBuffer input, ByteBuffer output, byte[] inStaging,
+        byte[] outStaging)
+        throws DataLengthException
+    {
+        int len = input.remaining();
+        if (output.remaining() < cipher.getUpdateOutputSize(len))
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (input.hasArray() && output.hasArray())
+        {
+            int resultLen = cipher.processBytes(input.array(), input.arrayOffset() + input.position(), len,
+                output.array(), output.arrayOffset() + output.position());
+            input.position(input.limit());
+            output.position(output.position() + resultLen);
+            return resultLen;
+        }
+
+        boolean clear = (inStaging == null);
+        if (inStaging == null)
+        {
+            inStaging = new byte[Math.min(len, STAGING_SIZE)];
+        }
+
+        int resultLen = 0;
+        for (int remaining = len; remaining > 0;)
+        {
+            int count = Math.min(remaining, inStaging.length);
+            int outCount = cipher.getUpdateOutputSize(count);
+            if (outStaging == null || outStaging.length < outCount)
+            {
+                outStaging = new byte[outCount];
+            }
+
+            input.get(inStaging, 0, count);
+            outCount = cipher.processBytes(inStaging, 0, count, outStaging, 0);
+            output.put(outStaging, 0, outCount);
+            remaining -= count;
+            resultLen += outCount;
+        }
+
+        if (clear)
+        {
+            Arrays.fill(inStaging, (byte)0);
+            if (outStaging != null)
+            {
+                Arrays.fill(outStaging, (byte)0);
+            }
+        }
+
+        return resultLen;
+    }
+
+    /**
+     * Process the remaining bytes in input using a buffered block cipher, writing any output produced to output.
+     *
+     * @param cipher the cipher to use.
+     * @param input the buffer containing the input, its position is advanced to its limit.
+     * @param output the buffer to write to, its position is advanced by the number of bytes written.
+     * @return the number of bytes written to output.
+     */
+    public static int processBytes(BufferedBlockCipher cipher, ByteBuffer input, ByteBuffer output)
+        throws DataLengthException
+    {
+        int len = input.remaining();
+        if (output.remaining() < cipher.getUpdateOutputSize(len))
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (input.hasArray() && output.hasArray())
+        {
+            int resultLen = cipher.processBytes(input.array(), input.arrayOffset() + input.position(), len,
+                output.array(), output.arrayOffset() + output.position());
+            input.position(input.limit());
+            output.position(output.position() + resultLen);
+            return resultLen;
+        }
+
+        byte[] inStaging = new byte[Math.min(len, STAGING_SIZE)];
+        byte[] outStaging = null;
+
+        int resultLen = 0;
+        for (int remaining = len; remaining > 0;)
+        {
+            int count = Math.min(remaining, inStaging.length);
+            int outCount = cipher.getUpdateOutputSize(count);
+            if (outStaging == null || outStaging.length < outCount)
+            {
+                outStaging = new byte[outCount];
+            }
+
+            input.get(inStaging, 0, count);
+            outCount = cipher.processBytes(inStaging, 0, count, outStaging, 0);
+            output.put(outStaging, 0, outCount);
+            remaining -= count;
+            resultLen += outCount;
+        }
+
+        Arrays.fill(inStaging, (byte)0);
+        if (outStaging != null)
+        {
+            Arrays.fill(outStaging, (byte)0);
+        }
+
+        return resultLen;
+    }
+}
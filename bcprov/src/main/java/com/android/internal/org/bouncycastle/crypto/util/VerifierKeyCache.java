@@ -0,0 +1,255 @@
+package com.android.internal.org.bouncycastle.crypto.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.android.internal.org.bouncycastle.asn1.ASN1Encoding;
+import com.android.internal.org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import com.android.internal.org.bouncycastle.crypto.params.AsymmetricKeyParameter;
+import com.android.internal.org.bouncycastle.util.Arrays;
+
+/**
+ * A bounded cache of public key parameters, keyed by the encoding of the public key. When the cache is full a
+ * least recently used key is evicted: the least recently used of SAMPLE_SIZE keys picked at random, or of all
+ * of them if the cache holds no more than SAMPLE_SIZE keys.
+ * <p>
+ * Handing back the same parameters object for the same key means anything computed from the key and held
+ * on it is kept between verifications, such as the decoded EC point together with its multiplication
+ * tables, the decompressed point of an Ed25519 key, or the validated modulus of an RSA key.
+ * </p>
+ * <p>
+ * Lookups do not take a lock, so one cache can be shared by many verifying threads. Only adding a key is
+ * serialised, and costs the same however large the cache is.
+ * </p>
+ */
+public class VerifierKeyCache
+{
+    public static final int DEFAULT_SIZE = 64;
+
+    /**
+     * The number of keys compared to pick the one to evict from a full cache.
+     */
+    public static final int SAMPLE_SIZE = 8;
+
+    private final int maxSize;
+    private final ConcurrentHashMap cache = new ConcurrentHashMap();
+    // every entry in the cache, at its slot index, so entries can be sampled - guarded by this
+    private final List slots = new ArrayList();
+    private final Random random = new Random();
+    private final AtomicLong clock = new AtomicLong(0);
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * Create a cache holding up to DEFAULT_SIZE keys.
+     */
+    public VerifierKeyCache()
+    {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Create a cache holding up to maxSize keys.
+     *
+     * @param maxSize the maximum number of keys to hold.
+     */
+    public VerifierKeyCache(int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the parameters cached for the passed in public key encoding, if any.
+     *
+     * @param encoding the encoding of the public key.
+     * @return the cached parameters, null if there are none.
+     */
+    public AsymmetricKeyParameter get(byte[] encoding)
+    {
+        CacheEntry entry = (CacheEntry)cache.get(new Encoding(encoding));
+        if (entry == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        entry.lastUsed = clock.incrementAndGet();
+        return entry.key;
+    }
+
+    /**
+     * Cache the parameters for the passed in public key encoding.
+     *
+     * @param encoding the encoding of the public key.
+     * @param key the public key parameters the encoding decodes to.
+     */
+    public void put(byte[] encoding, AsymmetricKeyParameter key)
+    {
+        if (key.isPrivate())
+        {
+            throw new IllegalArgumentException("only public keys can be cached");
+        }
+
+        Encoding id = new Encoding(Arrays.clone(encoding));
+
+        synchronized (this)
+        {
+            int slot;
+
+            CacheEntry existing = (CacheEntry)cache.get(id);
+            if (existing != null)
+            {
+                slot = existing.slot;
+            }
+            else if (slots.size() < maxSize)
+            {
+                slot = slots.size();
+                slots.add(null);
+            }
+            else
+            {
+                slot = findEvictionSlot();
+                cache.remove(((CacheEntry)slots.get(slot)).id);
+            }
+
+            CacheEntry entry = new CacheEntry(id, key, slot, clock.incrementAndGet());
+
+            slots.set(slot, entry);
+            cache.put(id, entry);
+        }
+    }
+
+    /**
+     * Return the public key parameters for the passed in SubjectPublicKeyInfo, creating and caching them
+     * on a miss.
+     *
+     * @param publicKeyInfo the public key to look up.
+     * @return the parameters for the public key.
+     * @throws IOException if the public key cannot be encoded or parsed.
+     */
+    public AsymmetricKeyParameter getKey(SubjectPublicKeyInfo publicKeyInfo)
+        throws IOException
+    {
+        byte[] encoding = publicKeyInfo.getEncoded(ASN1Encoding.DER);
+
+        AsymmetricKeyParameter key = get(encoding);
+        if (key == null)
+        {
+            key = PublicKeyFactory.createKey(publicKeyInfo);
+            put(encoding, key);
+        }
+        return key;
+    }
+
+    /**
+     * Return the number of lookups that found a cached key.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Return the number of lookups that did not find a cached key.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    public int size()
+    {
+        return cache.size();
+    }
+
+    public void clear()
+    {
+        synchronized (this)
+        {
+            cache.clear();
+            slots.clear();
+        }
+        hits.set(0);
+        misses.set(0);
+    }
+
+    // return the slot of the least recently used of a sample of the entries, called with the cache full
+    private int findEvictionSlot()
+    {
+        int count = slots.size();
+        boolean sampled = count > SAMPLE_SIZE;
+
+        int eldest = -1;
+        long eldestUsed = Long.MAX_VALUE;
+        for (int i = 0; i < Math.min(count, SAMPLE_SIZE); i++)
+        {
+            int slot = sampled ? random.nextInt(count) : i;
+            long lastUsed = ((CacheEntry)slots.get(slot)).lastUsed;
+            if (lastUsed < eldestUsed)
+            {
+                eldest = slot;
+                eldestUsed = lastUsed;
+            }
+        }
+        return eldest;
+    }
+
+    private static class CacheEntry
+    {
+        final Encoding id;
+        final AsymmetricKeyParameter key;
+        final int slot;
+
+        // the clock, which moves on with each put and each hit, when the entry was added or last returned - racing
+        // updates are harmless
+        volatile long lastUsed;
+
+        CacheEntry(Encoding id, AsymmetricKeyParameter key, int slot, long lastUsed)
+        {
+            this.id = id;
+            this.key = key;
+            this.slot = slot;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static class Encoding
+    {
+        private final byte[] encoding;
+        private final int hashCode;
+
+        Encoding(byte[] encoding)
+        {
+            this.encoding = encoding;
+            this.hashCode = Arrays.hashCode(encoding);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof Encoding))
+            {
+                return false;
+            }
+            return Arrays.areEqual(encoding, ((Encoding)o).encoding);
+        }
+    }
+}
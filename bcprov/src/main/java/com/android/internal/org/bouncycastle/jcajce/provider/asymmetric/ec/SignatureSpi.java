@@ -11,6 +11,7 @@ import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.digests.NullDigest;
 import com.android.internal.org.bouncycastle.crypto.digests.RIPEMD160Digest;
 import com.android.internal.org.bouncycastle.crypto.digests.SHAKEDigest;
+import com.android.internal.org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithRandom;
 import com.android.internal.org.bouncycastle.crypto.signers.DSAEncoding;
 import com.android.internal.org.bouncycastle.crypto.signers.ECDSASigner;
@@ -19,11 +20,15 @@ import com.android.internal.org.bouncycastle.crypto.signers.HMacDSAKCalculator;
 import com.android.internal.org.bouncycastle.crypto.signers.PlainDSAEncoding;
 import com.android.internal.org.bouncycastle.crypto.signers.StandardDSAEncoding;
 import com.android.internal.org.bouncycastle.crypto.util.DigestFactory;
+import com.android.internal.org.bouncycastle.crypto.util.VerifierKeyCache;
 import com.android.internal.org.bouncycastle.jcajce.provider.asymmetric.util.DSABase;
+import com.android.internal.org.bouncycastle.util.Properties;
 
 public class SignatureSpi
     extends DSABase
 {
+    private static final VerifierKeyCache keyCache = createKeyCache();
+
     SignatureSpi(Digest digest, DSAExt signer, DSAEncoding encoding)
     {
         super(digest, signer, encoding);
@@ -32,7 +37,26 @@ public class SignatureSpi
     protected void engineInitVerify(PublicKey publicKey)
         throws InvalidKeyException
     {
-        CipherParameters param = ECUtils.generatePublicKeyParameter(publicKey);
+        AsymmetricKeyParameter param;
+        if (keyCache != null)
+        {
+            // reuse the parameters, and so the multiplication tables for the point, of recently seen keys
+            byte[] encoding = publicKey.getEncoded();
+
+            param = (encoding != null) ? keyCache.get(encoding) : null;
+            if (param == null)
+            {
+                param = ECUtils.generatePublicKeyParameter(publicKey);
+                if (encoding != null)
+                {
+                    keyCache.put(encoding, param);
+                }
+            }
+        }
+        else
+        {
+            param = ECUtils.generatePublicKeyParameter(publicKey);
+        }
 
         digest.reset();
         signer.init(false, param);
@@ -60,6 +84,25 @@ public class SignatureSpi
     {
         return null;
     }
+
+    /**
+     * Return the cache of verification keys shared by the EC signature implementations, so its hit and
+     * miss counts can be monitored. The cache is only enabled if the property
+     * "org.bouncycastle.ec.verifier_key_cache_size" is set to the number of keys to hold.
+     *
+     * @return the shared key cache, null if it is not enabled.
+     */
+    public static VerifierKeyCache getKeyCache()
+    {
+        return keyCache;
+    }
+
+    private static VerifierKeyCache createKeyCache()
+    {
+        int size = Properties.asInteger("org.bouncycastle.ec.verifier_key_cache_size", 0);
+
+        return (size > 0) ? new VerifierKeyCache(size) : null;
+    }
     
     static public class ecDSA
         extends SignatureSpi
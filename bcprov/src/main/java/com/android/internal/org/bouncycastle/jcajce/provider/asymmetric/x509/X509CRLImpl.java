@@ -21,9 +21,11 @@ import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.security.auth.x500.X500Principal;
@@ -74,6 +76,8 @@ abstract class X509CRLImpl
     protected byte[] sigAlgParams;
     protected boolean isIndirect;
 
+    private volatile RevokedIndex revokedIndex;
+
     X509CRLImpl(JcaJceHelper bcHelper, CertificateList c, String sigAlgName, byte[] sigAlgParams, boolean isIndirect)
     {
         this.bcHelper = bcHelper;
@@ -446,30 +450,31 @@ abstract class X509CRLImpl
 
     public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
     {
-        Enumeration certs = c.getRevokedCertificateEnumeration();
+        RevokedIndex index = getRevokedIndex();
 
-        X500Name previousCertificateIssuer = null; // the issuer
-        while (certs.hasMoreElements())
+        TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)index.bySerial.get(serialNumber);
+        if (entry == null)
         {
-            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)certs.nextElement();
-
-            if (entry.getUserCertificate().hasValue(serialNumber))
-            {
-                return new X509CRLEntryObject(entry, isIndirect, previousCertificateIssuer);
-            }
+            return null;
+        }
 
-            if (isIndirect && entry.hasExtensions())
-            {
-                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+        return new X509CRLEntryObject(entry, isIndirect, (X500Name)index.previousIssuers.get(serialNumber));
+    }
 
-                if (currentCaName != null)
-                {
-                    previousCertificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                }
-            }
+    /**
+     * Return the index of the revoked certificate entries, building it on first use.
+     */
+    private RevokedIndex getRevokedIndex()
+    {
+        RevokedIndex index = revokedIndex;
+        if (index == null)
+        {
+            // a racing thread may build an identical index, either copy is fine to publish.
+            index = new RevokedIndex(c, isIndirect);
+            revokedIndex = index;
         }
 
-        return null;
+        return index;
     }
 
     public Set getRevokedCertificates()
@@ -643,83 +648,149 @@ abstract class X509CRLImpl
             throw new IllegalArgumentException("X.509 CRL used with non X.509 Cert");
         }
 
-        Enumeration certs = c.getRevokedCertificateEnumeration();
+        BigInteger serial = ((X509Certificate)cert).getSerialNumber();
+        RevokedIndex index = getRevokedIndex();
 
-        X500Name caName = c.getIssuer();
+        if (!index.bySerial.containsKey(serial))
+        {
+            return false;
+        }
 
-        if (certs.hasMoreElements())
+        X500Name issuer;
+
+        if (cert instanceof X509Certificate)
+        {
+            issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
+        }
+        else
+        {
+            try
+            {
+                issuer = com.android.internal.org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
+            }
+            catch (CertificateEncodingException e)
+            {
+                throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
+            }
+        }
+
+        if (isIndirect)
+        {
+            return index.issuerSerials.contains(new IssuerSerialKey(issuer, serial));
+        }
+
+        return c.getIssuer().equals(issuer);
+    }
+
+    protected static byte[] getExtensionOctets(CertificateList c, String oid)
+    {
+        ASN1OctetString extValue = getExtensionValue(c, oid);
+        if (null != extValue)
         {
-            BigInteger serial = ((X509Certificate)cert).getSerialNumber();
+            return extValue.getOctets();
+        }
+        return null;
+    }
 
+    protected static ASN1OctetString getExtensionValue(CertificateList c, String oid)
+    {
+        Extensions exts = c.getTBSCertList().getExtensions();
+        if (null != exts)
+        {
+            Extension ext = exts.getExtension(new ASN1ObjectIdentifier(oid));
+            if (null != ext)
+            {
+                return ext.getExtnValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Index of the revoked certificate entries of a CRL.
+     * <p>
+     * bySerial holds the first entry for each serial number, matching the order in which a linear scan of
+     * the CRL would find it. For an indirect CRL previousIssuers holds the certificate issuer carried forward
+     * to that entry from the entries before it, and issuerSerials the certificate issuer and serial number of
+     * every entry, as the same serial number can be revoked for different certificate issuers.
+     * </p>
+     */
+    private static class RevokedIndex
+    {
+        final Map bySerial = new HashMap();
+        final Map previousIssuers = new HashMap();
+        final Set issuerSerials = new HashSet();
+
+        RevokedIndex(CertificateList c, boolean isIndirect)
+        {
+            Enumeration certs = c.getRevokedCertificateEnumeration();
+
+            X500Name previousCertificateIssuer = null; // the issuer carried forward, null for the CRL issuer
             while (certs.hasMoreElements())
             {
                 TBSCertList.CRLEntry entry = TBSCertList.CRLEntry.getInstance(certs.nextElement());
+                BigInteger serial = entry.getUserCertificate().getValue();
 
-                if (isIndirect && entry.hasExtensions())
+                if (!bySerial.containsKey(serial))
                 {
-                    Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
-
-                    if (currentCaName != null)
+                    bySerial.put(serial, entry);
+                    if (isIndirect)
                     {
-                        caName = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
+                        previousIssuers.put(serial, previousCertificateIssuer);
                     }
                 }
 
-                if (entry.getUserCertificate().hasValue(serial))
+                if (isIndirect)
                 {
-                    X500Name issuer;
-
-                    if (cert instanceof X509Certificate)
-                    {
-                        issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
-                    }
-                    else
+                    if (entry.hasExtensions())
                     {
-                        try
-                        {
-                            issuer = com.android.internal.org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
-                        }
-                        catch (CertificateEncodingException e)
+                        Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+
+                        if (currentCaName != null)
                         {
-                            throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
+                            previousCertificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
                         }
                     }
 
-                    if (!caName.equals(issuer))
-                    {
-                        return false;
-                    }
+                    X500Name caName = (previousCertificateIssuer != null) ? previousCertificateIssuer : c.getIssuer();
 
-                    return true;
+                    issuerSerials.add(new IssuerSerialKey(caName, serial));
                 }
             }
         }
-
-        return false;
     }
 
-    protected static byte[] getExtensionOctets(CertificateList c, String oid)
+    private static class IssuerSerialKey
     {
-        ASN1OctetString extValue = getExtensionValue(c, oid);
-        if (null != extValue)
+        private final X500Name issuer;
+        private final BigInteger serial;
+
+        IssuerSerialKey(X500Name issuer, BigInteger serial)
         {
-            return extValue.getOctets();
+            this.issuer = issuer;
+            this.serial = serial;
         }
-        return null;
-    }
 
-    protected static ASN1OctetString getExtensionValue(CertificateList c, String oid)
-    {
-        Extensions exts = c.getTBSCertList().getExtensions();
-        if (null != exts)
+        public boolean equals(Object o)
         {
-            Extension ext = exts.getExtension(new ASN1ObjectIdentifier(oid));
-            if (null != ext)
+            if (o == this)
             {
-                return ext.getExtnValue();
+                return true;
+            }
+            if (!(o instanceof IssuerSerialKey))
+            {
+                return false;
             }
+
+            IssuerSerialKey other = (IssuerSerialKey)o;
+
+            return serial.equals(other.serial) && issuer.equals(other.issuer);
+        }
+
+        public int hashCode()
+        {
+            return issuer.hashCode() ^ serial.hashCode();
         }
-        return null;
     }
 }
 
@@ -1,9 +1,12 @@
 package com.android.internal.org.bouncycastle.jcajce.provider.digest;
 
+import java.nio.ByteBuffer;
 import java.security.DigestException;
 import java.security.MessageDigest;
 
+import com.android.internal.org.bouncycastle.crypto.ByteBufferDigest;
 import com.android.internal.org.bouncycastle.crypto.Digest;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 
 public class BCMessageDigest
     extends MessageDigest
@@ -39,6 +42,19 @@ public class BCMessageDigest
         digest.update(input, offset, len);
     }
 
+    public void engineUpdate(
+        ByteBuffer input)
+    {
+        if (digest instanceof ByteBufferDigest)
+        {
+            ((ByteBufferDigest)digest).update(input);
+        }
+        else
+        {
+            ByteBuffers.update(digest, input);
+        }
+    }
+
     public int engineGetDigestLength()
     {
         return digestSize;
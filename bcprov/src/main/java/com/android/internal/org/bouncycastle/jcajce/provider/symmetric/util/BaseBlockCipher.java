@@ -27,6 +27,7 @@ import com.android.internal.org.bouncycastle.asn1.DEROctetString;
 import com.android.internal.org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import com.android.internal.org.bouncycastle.crypto.BlockCipher;
 import com.android.internal.org.bouncycastle.crypto.BufferedBlockCipher;
+import com.android.internal.org.bouncycastle.crypto.ByteBufferCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
@@ -72,6 +73,7 @@ import com.android.internal.org.bouncycastle.crypto.params.ParametersWithRandom;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithSBox;
 import com.android.internal.org.bouncycastle.crypto.params.RC2Parameters;
 import com.android.internal.org.bouncycastle.crypto.params.RC5Parameters;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 import com.android.internal.org.bouncycastle.internal.asn1.cms.GCMParameters;
 import com.android.internal.org.bouncycastle.jcajce.PBKDF1Key;
 import com.android.internal.org.bouncycastle.jcajce.PBKDF1KeyWithParameters;
@@ -1154,6 +1156,47 @@ public class BaseBlockCipher
         }
     }
 
+    protected int engineUpdate(
+        ByteBuffer input,
+        ByteBuffer output)
+        throws ShortBufferException
+    {
+        if (output.remaining() < cipher.getUpdateOutputSize(input.remaining()))
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        // the default implementation copies input which the output would overwrite before it is read
+        if (sharesArray(input, output))
+        {
+            return super.engineUpdate(input, output);
+        }
+
+        try
+        {
+            return cipher.processBytes(input, output);
+        }
+        catch (DataLengthException e)
+        {
+            // should never occur
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    // true if input and output are views of the same array with overlapping contents
+    private static boolean sharesArray(ByteBuffer input, ByteBuffer output)
+    {
+        if (!input.hasArray() || !output.hasArray() || input.array() != output.array())
+        {
+            return false;
+        }
+
+        int inOff = input.arrayOffset() + input.position();
+        int outOff = output.arrayOffset() + output.position();
+
+        return inOff < outOff + output.remaining() && outOff < inOff + input.remaining();
+    }
+
     protected byte[] engineDoFinal(
         byte[] input,
         int inputOffset,
@@ -1261,6 +1304,9 @@ public class BaseBlockCipher
         public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
             throws DataLengthException;
 
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException;
+
         public int doFinal(byte[] out, int outOff)
             throws IllegalStateException,
             BadPaddingException;
@@ -1334,6 +1380,16 @@ public class BaseBlockCipher
             return cipher.processBytes(in, inOff, len, out, outOff);
         }
 
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException
+        {
+            if (cipher instanceof ByteBufferCipher)
+            {
+                return ((ByteBufferCipher)cipher).processBytes(in, out);
+            }
+            return ByteBuffers.processBytes(cipher, in, out);
+        }
+
         public int doFinal(byte[] out, int outOff)
             throws IllegalStateException, BadPaddingException
         {
@@ -1411,6 +1467,18 @@ public class BaseBlockCipher
             return 0;
         }
 
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException
+        {
+            byte[] data = new byte[in.remaining()];
+
+            in.get(data);
+            eOut.write(data, 0, data.length);
+            Arrays.fill(data, (byte)0);
+
+            return 0;
+        }
+
         public int doFinal(byte[] out, int outOff)
             throws IllegalStateException, BadPaddingException
         {
@@ -1520,6 +1588,16 @@ public class BaseBlockCipher
             return cipher.processBytes(in, inOff, len, out, outOff);
         }
 
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException
+        {
+            if (cipher instanceof ByteBufferCipher)
+            {
+                return ((ByteBufferCipher)cipher).processBytes(in, out);
+            }
+            return ByteBuffers.processBytes(cipher, in, out);
+        }
+
         public int doFinal(byte[] out, int outOff)
             throws IllegalStateException, BadPaddingException
         {
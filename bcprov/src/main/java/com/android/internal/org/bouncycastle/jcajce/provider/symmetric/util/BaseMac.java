@@ -1,5 +1,6 @@
 package com.android.internal.org.bouncycastle.jcajce.provider.symmetric.util;
 
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -15,6 +16,7 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEParameterSpec;
 import javax.crypto.spec.RC2ParameterSpec;
 
+import com.android.internal.org.bouncycastle.crypto.ByteBufferMac;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.Mac;
 import com.android.internal.org.bouncycastle.crypto.macs.HMac;
@@ -23,6 +25,7 @@ import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
 import com.android.internal.org.bouncycastle.crypto.params.RC2Parameters;
 import com.android.internal.org.bouncycastle.crypto.params.SkeinParameters;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 import com.android.internal.org.bouncycastle.jcajce.PKCS12Key;
 import com.android.internal.org.bouncycastle.jcajce.spec.AEADParameterSpec;
 import com.android.internal.org.bouncycastle.jcajce.spec.SkeinParameterSpec;
@@ -240,6 +243,19 @@ public class BaseMac
         macEngine.update(input, offset, len);
     }
 
+    protected void engineUpdate(
+        ByteBuffer input)
+    {
+        if (macEngine instanceof ByteBufferMac)
+        {
+            ((ByteBufferMac)macEngine).update(input);
+        }
+        else
+        {
+            ByteBuffers.update(macEngine, input);
+        }
+    }
+
     protected byte[] engineDoFinal() 
     {
         byte[]  out = new byte[engineGetMacLength()];
@@ -1,5 +1,6 @@
 package com.android.internal.org.bouncycastle.jcajce.provider.symmetric.util;
 
+import java.nio.ByteBuffer;
 import java.security.AlgorithmParameters;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -18,12 +19,14 @@ import javax.crypto.spec.PBEParameterSpec;
 import javax.crypto.spec.RC2ParameterSpec;
 import javax.crypto.spec.RC5ParameterSpec;
 
+import com.android.internal.org.bouncycastle.crypto.ByteBufferCipher;
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.DataLengthException;
 import com.android.internal.org.bouncycastle.crypto.StreamCipher;
 import com.android.internal.org.bouncycastle.crypto.params.KeyParameter;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithIV;
+import com.android.internal.org.bouncycastle.crypto.util.ByteBuffers;
 import com.android.internal.org.bouncycastle.jcajce.PKCS12Key;
 import com.android.internal.org.bouncycastle.jcajce.PKCS12KeyWithParameters;
 
@@ -388,6 +391,51 @@ public class BaseStreamCipher
         }
     }
 
+    protected int engineUpdate(
+        ByteBuffer  input,
+        ByteBuffer  output)
+        throws ShortBufferException
+    {
+        if (input.remaining() > output.remaining())
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        // the default implementation copies input which the output would overwrite before it is read
+        if (sharesArray(input, output))
+        {
+            return super.engineUpdate(input, output);
+        }
+
+        try
+        {
+            if (cipher instanceof ByteBufferCipher)
+            {
+                return ((ByteBufferCipher)cipher).processBytes(input, output);
+            }
+            return ByteBuffers.processBytes(cipher, input, output);
+        }
+        catch (DataLengthException e)
+        {
+            // should never happen
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    // true if input and output are views of the same array with overlapping contents
+    private static boolean sharesArray(ByteBuffer input, ByteBuffer output)
+    {
+        if (!input.hasArray() || !output.hasArray() || input.array() != output.array())
+        {
+            return false;
+        }
+
+        int inOff = input.arrayOffset() + input.position();
+        int outOff = output.arrayOffset() + output.position();
+
+        return inOff < outOff + output.remaining() && outOff < inOff + input.remaining();
+    }
+
     protected byte[] engineDoFinal(
         byte[]  input,
         int     inputOffset,
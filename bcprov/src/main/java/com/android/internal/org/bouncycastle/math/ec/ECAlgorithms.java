@@ -11,6 +11,9 @@ import com.android.internal.org.bouncycastle.math.raw.Nat;
 
 public class ECAlgorithms
 {
+    // below this many points interleaved wNAF is faster than the bucket method
+    private static final int PIPPENGER_MIN_COUNT = 64;
+
     public static boolean isF2mCurve(ECCurve c)
     {
         return isF2mField(c.getField());
@@ -60,6 +63,11 @@ public class ECAlgorithms
             imported[i] = importPoint(c, ps[i]);
         }
 
+        if (count >= PIPPENGER_MIN_COUNT)
+        {
+            return implCheckResult(implSumOfMultipliesPippenger(imported, ks));
+        }
+
         ECEndomorphism endomorphism = c.getEndomorphism();
         if (endomorphism instanceof GLVEndomorphism)
         {
@@ -420,6 +428,145 @@ public class ECAlgorithms
         return implSumOfMultiplies(negs, infos, wnafs);
     }
 
+    static ECPoint implSumOfMultipliesPippenger(ECPoint[] ps, BigInteger[] ks)
+    {
+        /*
+         * Bucket method (Pippenger), with signed window digits so that each window needs only half
+         * as many buckets. Each point is added into one bucket per window, and the buckets are
+         * combined with a running sum, so the cost per point falls as the number of points grows.
+         */
+        int count = ps.length;
+        ECCurve c = ps[0].getCurve();
+        BigInteger n = c.getOrder();
+
+        ECPoint[] points = new ECPoint[count << 1];
+        BigInteger[] scalars = new BigInteger[count];
+        int bits = 0;
+
+        for (int i = 0; i < count; ++i)
+        {
+            ECPoint p = ps[i];
+            BigInteger k = ks[i];
+            if (n != null)
+            {
+                k = k.mod(n);
+            }
+            else if (k.signum() < 0)
+            {
+                p = p.negate();
+                k = k.negate();
+            }
+
+            points[i] = p;
+            scalars[i] = k;
+            bits = Math.max(bits, k.bitLength());
+        }
+
+        // Normalize the inputs so that bucket additions are mixed additions
+        c.normalizeAll(points, 0, count, null);
+
+        for (int i = 0; i < count; ++i)
+        {
+            points[count + i] = points[i].negate();
+        }
+
+        int width = getPippengerWindowSize(count, bits);
+        int windows = (bits + width) / width;
+        int[][] digits = new int[count][];
+
+        for (int i = 0; i < count; ++i)
+        {
+            digits[i] = getSignedWindowDigits(scalars[i], width, windows);
+        }
+
+        ECPoint infinity = c.getInfinity();
+        ECPoint[] buckets = new ECPoint[1 << (width - 1)];
+        ECPoint R = infinity;
+
+        for (int w = windows - 1; w >= 0; --w)
+        {
+            for (int j = 0; j < buckets.length; ++j)
+            {
+                buckets[j] = infinity;
+            }
+
+            int top = -1;
+            for (int i = 0; i < count; ++i)
+            {
+                int d = digits[i][w];
+                if (d != 0)
+                {
+                    int j = Math.abs(d) - 1;
+                    buckets[j] = buckets[j].add(points[d < 0 ? count + i : i]);
+                    top = Math.max(top, j);
+                }
+            }
+
+            R = R.timesPow2(width);
+
+            if (top < 0)
+            {
+                continue;
+            }
+
+            // sum of (j + 1).buckets[j], computed as a running sum from the top bucket down
+            ECPoint sum = infinity, acc = infinity;
+            for (int j = top; j >= 0; --j)
+            {
+                sum = sum.add(buckets[j]);
+                acc = acc.add(sum);
+            }
+
+            R = R.add(acc);
+        }
+
+        return R;
+    }
+
+    private static int getPippengerWindowSize(int count, int bits)
+    {
+        // Minimise (number of windows) * (additions per window), with a running sum costing two additions per bucket
+        int best = 2;
+        long bestCost = Long.MAX_VALUE;
+        for (int width = 2; width <= 16; ++width)
+        {
+            long cost = (long)((bits + width) / width) * (count + (1L << width));
+            if (cost < bestCost)
+            {
+                best = width;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    private static int[] getSignedWindowDigits(BigInteger k, int width, int windows)
+    {
+        int[] x = Nat.fromBigInteger(windows * width, k);
+        int[] digits = new int[windows];
+
+        int mask = (1 << width) - 1, half = 1 << (width - 1), carry = 0;
+
+        for (int w = 0; w < windows; ++w)
+        {
+            int pos = w * width, word = pos >>> 5, shift = pos & 31;
+
+            int v = x[word] >>> shift;
+            if (shift + width > 32 && word + 1 < x.length)
+            {
+                v |= x[word + 1] << (32 - shift);
+            }
+
+            int d = (v & mask) + carry;
+
+            // windows is chosen so that the top digit is below half and never carries out
+            carry = d > half ? 1 : 0;
+            digits[w] = d - (carry << width);
+        }
+
+        return digits;
+    }
+
     static ECPoint implSumOfMultipliesGLV(ECPoint[] ps, BigInteger[] ks, GLVEndomorphism glvEndomorphism)
     {
         BigInteger n = ps[0].getCurve().getOrder();
@@ -3,8 +3,10 @@ package com.android.internal.org.bouncycastle.math.ec;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -163,27 +165,24 @@ public abstract class ECCurve
     {
         checkPoint(point);
 
-        Hashtable table;
-        synchronized (point)
-        {
-            table = point.preCompTable;
-        }
-
-        if (null == table)
+        Map map = point.preCompMap;
+        if (null == map)
         {
             return null;
         }
 
-        synchronized (table)
-        {
-            return (PreCompInfo)table.get(name);
-        }
+        return (PreCompInfo)map.get(name);
     }
 
     /**
      * Compute a <code>PreCompInfo</code> for a point on this curve, under a given name. Used by
      * <code>ECMultiplier</code>s to save the precomputation for this <code>ECPoint</code> for use
      * by subsequent multiplication.
+     * <p>
+     * The callback is run exactly once for each <code>PreCompInfo</code> it is passed. When passed an
+     * existing <code>PreCompInfo</code> it may be run without a lock held, concurrently with other
+     * callers, so any change it makes to that <code>PreCompInfo</code> must be thread safe.
+     * </p>
      * 
      * @param point
      *            The <code>ECPoint</code> to store precomputations for.
@@ -196,24 +195,45 @@ public abstract class ECCurve
     {
         checkPoint(point);
 
-        Hashtable table;
-        synchronized (point)
+        /*
+         * Once a precomputation has been published, callers that find it sufficient return it
+         * after a single lookup in the published map, without taking a lock. The lock is only
+         * taken to publish a new result, and a callback run against an entry which has since been
+         * replaced is run again against the replacement, so each entry is passed to the callback
+         * once and a new precomputation is never published over another.
+         */
+        Map map = point.preCompMap;
+        PreCompInfo existing = (null == map) ? null : (PreCompInfo)map.get(name);
+        PreCompInfo result = null;
+        if (null != existing)
         {
-            table = point.preCompTable;
-            if (null == table)
+            result = callback.precompute(existing);
+            if (result == existing)
             {
-                point.preCompTable = table = new Hashtable(4);
+                return result;
             }
         }
 
-        synchronized (table)
+        synchronized (point)
         {
-            PreCompInfo existing = (PreCompInfo)table.get(name);
-            PreCompInfo result = callback.precompute(existing);
+            map = point.preCompMap;
+            PreCompInfo current = (null == map) ? null : (PreCompInfo)map.get(name);
+            if (null == result || current != existing)
+            {
+                result = callback.precompute(current);
+            }
 
-            if (result != existing)
+            if (result != current)
             {
-                table.put(name, result);
+                Map updated = (null == map) ? new HashMap(4) : new HashMap(map);
+                updated.put(name, result);
+                point.preCompMap = updated;
+
+                if (null == point.preCompTable)
+                {
+                    point.preCompTable = new Hashtable(4);
+                }
+                point.preCompTable.put(name, result);
             }
 
             return result;
@@ -308,7 +328,7 @@ public abstract class ECCurve
             return;
         }
 
-        ECAlgorithms.montgomeryTrick(zs, 0, count, iso);
+        invertAll(zs, 0, count, iso);
 
         for (int j = 0; j < count; ++j)
         {
@@ -317,6 +337,22 @@ public abstract class ECCurve
         }
     }
 
+    /**
+     * Invert several field elements of this curve at the cost of a single inversion, replacing each
+     * element of the range with its inverse (or, if scale is not null, the inverse of its product with
+     * scale). Curves with a specialised field representation may override this to avoid the
+     * intermediate field element objects.
+     *
+     * @param zs the field elements to invert, none of which may be zero.
+     * @param off the start of the range of elements to invert.
+     * @param len the length of the range of elements to invert.
+     * @param scale an (optional) scaling factor - can be null.
+     */
+    protected void invertAll(ECFieldElement[] zs, int off, int len, ECFieldElement scale)
+    {
+        ECAlgorithms.montgomeryTrick(zs, off, len, scale);
+    }
+
     public abstract ECPoint getInfinity();
 
     public FiniteField getField()
@@ -3,6 +3,7 @@ package com.android.internal.org.bouncycastle.math.ec;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 import java.util.Hashtable;
+import java.util.Map;
 
 import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 
@@ -52,6 +53,10 @@ public abstract class ECPoint
     // Hashtable is (String -> PreCompInfo)
     protected Hashtable preCompTable = null;
 
+    // Map is (String -> PreCompInfo), replaced rather than changed so it can be read without locking.
+    // preCompTable is kept in step with it for compatibility.
+    volatile Map preCompMap = null;
+
     protected ECPoint(ECCurve curve, ECFieldElement x, ECFieldElement y)
     {
         this(curve, x, y, getInitialZCoords(curve));
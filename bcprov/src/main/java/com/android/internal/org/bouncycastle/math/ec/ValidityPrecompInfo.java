@@ -4,9 +4,9 @@ class ValidityPrecompInfo implements PreCompInfo
 {
     static final String PRECOMP_NAME = "bc_validity";
 
-    private boolean failed = false;
-    private boolean curveEquationPassed = false;
-    private boolean orderPassed = false;
+    private volatile boolean failed = false;
+    private volatile boolean curveEquationPassed = false;
+    private volatile boolean orderPassed = false;
 
     boolean hasFailed()
     {
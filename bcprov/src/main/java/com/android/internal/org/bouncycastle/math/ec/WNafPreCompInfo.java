@@ -32,10 +32,19 @@ public class WNafPreCompInfo implements PreCompInfo
 
     int decrementPromotionCountdown()
     {
+        // the countdown can be decremented by callers sharing a published instance, so the update is locked
+        // until the instance is promoted.
         int t = promotionCountdown;
         if (t > 0)
         {
-            promotionCountdown = --t;
+            synchronized (this)
+            {
+                t = promotionCountdown;
+                if (t > 0)
+                {
+                    promotionCountdown = --t;
+                }
+            }
         }
         return t;
     }
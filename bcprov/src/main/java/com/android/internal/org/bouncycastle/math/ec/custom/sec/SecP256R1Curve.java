@@ -78,6 +78,23 @@ public class SecP256R1Curve extends ECCurve.AbstractFp
         return new SecP256R1Point(this, x, y, zs);
     }
 
+    protected void invertAll(ECFieldElement[] zs, int off, int len, ECFieldElement scale)
+    {
+        int[][] xs = new int[len][], inverses = new int[len][];
+        for (int i = 0; i < len; ++i)
+        {
+            xs[i] = ((SecP256R1FieldElement)zs[off + i]).x;
+            inverses[i] = Nat256.create();
+        }
+
+        SecP256R1Field.invAll(xs, 0, inverses, 0, len, scale == null ? null : ((SecP256R1FieldElement)scale).x);
+
+        for (int i = 0; i < len; ++i)
+        {
+            zs[off + i] = new SecP256R1FieldElement(inverses[i]);
+        }
+    }
+
     public ECPoint getInfinity()
     {
         return infinity;
@@ -78,6 +78,23 @@ public class SecP384R1Curve extends ECCurve.AbstractFp
         return new SecP384R1Point(this, x, y, zs);
     }
 
+    protected void invertAll(ECFieldElement[] zs, int off, int len, ECFieldElement scale)
+    {
+        int[][] xs = new int[len][], inverses = new int[len][];
+        for (int i = 0; i < len; ++i)
+        {
+            xs[i] = ((SecP384R1FieldElement)zs[off + i]).x;
+            inverses[i] = Nat.create(12);
+        }
+
+        SecP384R1Field.invAll(xs, 0, inverses, 0, len, scale == null ? null : ((SecP384R1FieldElement)scale).x);
+
+        for (int i = 0; i < len; ++i)
+        {
+            zs[off + i] = new SecP384R1FieldElement(inverses[i]);
+        }
+    }
+
     public ECPoint getInfinity()
     {
         return infinity;
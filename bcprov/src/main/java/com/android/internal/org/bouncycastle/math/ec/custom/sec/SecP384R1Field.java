@@ -82,6 +82,42 @@ public class SecP384R1Field
         Mod.checkedModOddInverse(P, x, z);
     }
 
+    /**
+     * Invert the len values of xs from xsOff using a single field inversion (Montgomery's trick), writing
+     * the inverses to the arrays of zs from zsOff. If scale is not null each result is the inverse of the
+     * value multiplied by scale. None of the values may be zero.
+     * <p>
+     * The running products are kept in the arrays of zs, so no scratch space is needed for them, but those
+     * arrays must not be any of the arrays of xs.
+     * </p>
+     */
+    public static void invAll(int[][] xs, int xsOff, int[][] zs, int zsOff, int len, int[] scale)
+    {
+        int[] u = Nat.create(12), tt = Nat.create(24);
+
+        // zs holds the running products xs[xsOff] * ... * xs[xsOff + i]
+        Nat.copy(12, xs[xsOff], zs[zsOff]);
+        for (int i = 1; i < len; ++i)
+        {
+            multiply(zs[zsOff + i - 1], xs[xsOff + i], zs[zsOff + i], tt);
+        }
+
+        Nat.copy(12, zs[zsOff + len - 1], u);
+        if (scale != null)
+        {
+            multiply(u, scale, u, tt);
+        }
+        inv(u, u);
+
+        for (int i = len - 1; i > 0; --i)
+        {
+            multiply(zs[zsOff + i - 1], u, zs[zsOff + i], tt);
+            multiply(u, xs[xsOff + i], u, tt);
+        }
+
+        Nat.copy(12, u, zs[zsOff]);
+    }
+
     public static int isZero(int[] x)
     {
         int d = 0;
@@ -2,6 +2,7 @@ package com.android.internal.org.bouncycastle.math.ec.rfc8032;
 
 import java.security.SecureRandom;
 
+import com.android.internal.org.bouncycastle.crypto.CryptoServicesRegistrar;
 import com.android.internal.org.bouncycastle.crypto.Digest;
 import com.android.internal.org.bouncycastle.crypto.digests.SHA512Digest;
 import com.android.internal.org.bouncycastle.math.ec.rfc7748.X25519;
@@ -88,6 +89,7 @@ public abstract class Ed25519
 //    private static final int WNAF_WIDTH = 5;
     private static final int WNAF_WIDTH_128 = 4;
     private static final int WNAF_WIDTH_BASE = 6;
+    private static final int WNAF_WIDTH_BATCH = 5;
 
     // scalarMultBase is hard-coded for these values of blocks, teeth, spacing so they can't be freely changed
     private static final int PRECOMP_BLOCKS = 8;
@@ -646,6 +648,153 @@ public abstract class Ed25519
         return normalizeToNeutralElementVar(pZ);
     }
 
+    private static boolean implVerifyBatch(byte[][] sigs, byte[][] pks, PublicPoint[] publicPoints, byte[][] ms,
+        SecureRandom random, boolean[] results)
+    {
+        int count = sigs.length;
+        if ((pks != null ? pks.length : publicPoints.length) != count || ms.length != count)
+        {
+            throw new IllegalArgumentException("batch arrays must all be the same length");
+        }
+        if (results != null && results.length < count)
+        {
+            throw new IllegalArgumentException("results array too short");
+        }
+
+        random = CryptoServicesRegistrar.getSecureRandom(random);
+
+        /*
+         * Each valid signature satisfies [8](S.B - k.A - R) == 0. For random 127-bit z_i the batch checks
+         * [8]((sum z_i.S_i).B - sum (z_i.k_i).A_i - sum z_i.R_i) == 0, sharing the doublings between all the
+         * signatures. Entries failing the cheap encoding checks are excluded from the batch up front.
+         */
+        boolean[] batched = new boolean[count];
+        int batchCount = 0;
+
+        PointAffine[] pA = new PointAffine[count];
+        PointAffine[] pR = new PointAffine[count];
+        int[][] nA = new int[count][];
+        int[][] nR = new int[count][];
+
+        int[] nB = new int[SCALAR_INTS];
+        int nBHi = 0;
+
+        Digest d = createDigest();
+        byte[] h = new byte[64];
+        byte[] zBytes = new byte[16];
+        int[] nS = new int[SCALAR_INTS];
+        int[] nK = new int[SCALAR_INTS];
+        int[] t = new int[SCALAR_INTS];
+
+        boolean allValid = true;
+
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] sig = sigs[i];
+            if (sig.length != SIGNATURE_SIZE)
+            {
+                allValid = false;
+                continue;
+            }
+
+            byte[] R = copy(sig, 0, POINT_BYTES);
+            byte[] S = copy(sig, POINT_BYTES, SCALAR_BYTES);
+
+            if (!checkPointVar(R) || !Scalar25519.checkVar(S, nS))
+            {
+                allValid = false;
+                continue;
+            }
+
+            PointAffine pRi = new PointAffine();
+            if (!decodePointVar(R, true, pRi))
+            {
+                allValid = false;
+                continue;
+            }
+
+            byte[] A;
+            PointAffine pAi = new PointAffine();
+            if (pks != null)
+            {
+                A = pks[i];
+                if (A.length != PUBLIC_KEY_SIZE || !checkPointFullVar(A) || !decodePointVar(A, true, pAi))
+                {
+                    allValid = false;
+                    continue;
+                }
+            }
+            else
+            {
+                F.negate(publicPoints[i].data, pAi.x);
+                F.copy(publicPoints[i].data, F.SIZE, pAi.y, 0);
+
+                A = new byte[PUBLIC_KEY_SIZE];
+                encodePublicPoint(publicPoints[i], A, 0);
+            }
+
+            d.update(R, 0, POINT_BYTES);
+            d.update(A, 0, POINT_BYTES);
+            d.update(ms[i], 0, ms[i].length);
+            d.doFinal(h, 0);
+
+            Scalar25519.decode(Scalar25519.reduce512(h), nK);
+
+            int[] z = new int[4];
+            random.nextBytes(zBytes);
+            Codec.decode32(zBytes, 0, z, 0, 4);
+            z[3] &= 0x7FFFFFFF;         // keep z positive for multiply128Var
+
+            nA[i] = new int[SCALAR_INTS];
+            Scalar25519.multiply128Var(nK, z, nA[i]);
+            nR[i] = z;
+
+            Scalar25519.multiply128Var(nS, z, t);
+            nBHi += Nat256.addTo(t, nB);
+
+            pA[i] = pAi;
+            pR[i] = pRi;
+            batched[i] = true;
+            ++batchCount;
+        }
+
+        if (batchCount > 0)
+        {
+            int[] tt = new int[12];
+            Nat256.copy(nB, 0, tt, 0);
+            tt[8] = nBHi;
+
+            byte[] bytes = new byte[48];
+            Codec.encode32(tt, 0, 12, bytes, 0);
+            Scalar25519.decode(Scalar25519.reduce384(bytes), nB);
+
+            PointAccum pZ = new PointAccum();
+            scalarMultStrausBatchVar(nB, batched, nA, pA, nR, pR, pZ);
+
+            if (!normalizeToNeutralElementVar(pZ))
+            {
+                // find the bad entries one at a time
+                allValid = false;
+                for (int i = 0; i < count; ++i)
+                {
+                    if (batched[i])
+                    {
+                        batched[i] = pks != null
+                            ?   implVerify(sigs[i], 0, pks[i], 0, null, (byte)0x00, ms[i], 0, ms[i].length)
+                            :   implVerify(sigs[i], 0, publicPoints[i], null, (byte)0x00, ms[i], 0, ms[i].length);
+                    }
+                }
+            }
+        }
+
+        if (results != null)
+        {
+            System.arraycopy(batched, 0, results, 0, count);
+        }
+
+        return allValid;
+    }
+
     private static void invertDoubleZs(PointExtended[] points)
     {
         int count = points.length;
@@ -1412,6 +1561,115 @@ public abstract class Ed25519
         pointDouble(r);
     }
 
+    private static void scalarMultStrausBatchVar(int[] nb, boolean[] batched, int[][] na, PointAffine[] pa,
+        int[][] nr, PointAffine[] pr, PointAccum r)
+    {
+//        assert nb.length == SCALAR_INTS;
+//        assert nb[SCALAR_INTS - 1] >>> 29 == 0;
+
+        precompute();
+
+        int count = batched.length;
+
+        byte[] ws_b = new byte[256];
+        Wnaf.getSignedVar(nb, WNAF_WIDTH_BASE, ws_b);
+
+        byte[][] ws_a = new byte[count][];
+        byte[][] ws_r = new byte[count][];
+        PointPrecompZ[][] ta = new PointPrecompZ[count][];
+        PointPrecompZ[][] tr = new PointPrecompZ[count][];
+
+        int countA = 1 << (WNAF_WIDTH_BATCH - 2);
+        int countR = 1 << (WNAF_WIDTH_128 - 2);
+        PointTemp t = new PointTemp();
+
+        int top = -1;
+        for (int bit = 127; bit > top; --bit)
+        {
+            if ((ws_b[bit] | ws_b[128 + bit]) != 0)
+            {
+                top = bit;
+            }
+        }
+
+        for (int i = 0; i < count; ++i)
+        {
+            if (!batched[i])
+            {
+                continue;
+            }
+
+            ws_a[i] = new byte[256];
+            ws_r[i] = new byte[128];
+            Wnaf.getSignedVar(na[i], WNAF_WIDTH_BATCH, ws_a[i]);
+            Wnaf.getSignedVar(nr[i], WNAF_WIDTH_128, ws_r[i]);
+
+            for (int bit = 255; bit > top; --bit)
+            {
+                if (ws_a[i][bit] != 0 || (bit < 128 && ws_r[i][bit] != 0))
+                {
+                    top = bit;
+                }
+            }
+
+            pointPrecomputeZ(pa[i], ta[i] = new PointPrecompZ[countA], countA, t);
+            pointPrecomputeZ(pr[i], tr[i] = new PointPrecompZ[countR], countR, t);
+        }
+
+        pointSetNeutral(r);
+
+        for (int bit = top; bit >= 0; --bit)
+        {
+            if (bit < 128)
+            {
+                int wb = ws_b[bit];
+                if (wb != 0)
+                {
+                    int index = (wb >> 1) ^ (wb >> 31);
+                    pointAddVar(wb < 0, PRECOMP_BASE_WNAF[index], r, t);
+                }
+
+                int wb128 = ws_b[128 + bit];
+                if (wb128 != 0)
+                {
+                    int index = (wb128 >> 1) ^ (wb128 >> 31);
+                    pointAddVar(wb128 < 0, PRECOMP_BASE128_WNAF[index], r, t);
+                }
+            }
+
+            for (int i = 0; i < count; ++i)
+            {
+                if (!batched[i])
+                {
+                    continue;
+                }
+
+                int wa = ws_a[i][bit];
+                if (wa != 0)
+                {
+                    int index = (wa >> 1) ^ (wa >> 31);
+                    pointAddVar(wa < 0, ta[i][index], r, t);
+                }
+
+                if (bit < 128)
+                {
+                    int wr = ws_r[i][bit];
+                    if (wr != 0)
+                    {
+                        int index = (wr >> 1) ^ (wr >> 31);
+                        pointAddVar(wr < 0, tr[i][index], r, t);
+                    }
+                }
+            }
+
+            pointDouble(r);
+        }
+
+        // NOTE: Together with the final pointDouble of the loop, this clears the cofactor of 8
+        pointDouble(r);
+        pointDouble(r);
+    }
+
     public static void sign(byte[] sk, int skOff, byte[] m, int mOff, int mLen, byte[] sig, int sigOff)
     {
         byte[] ctx = null;
@@ -1589,6 +1847,40 @@ public abstract class Ed25519
         return implVerify(sig, sigOff, publicPoint, ctx, phflag, m, mOff, mLen);
     }
 
+    /**
+     * Verify a batch of Ed25519 signatures using a single random linear combination of the verification
+     * equations, falling back to verifying each signature in turn only if the combined check fails.
+     *
+     * @param sigs the signatures, each exactly {@link #SIGNATURE_SIZE} bytes.
+     * @param pks the encoded public keys, one per signature.
+     * @param ms the messages, one per signature.
+     * @param random source of the random multipliers for the linear combination, or null for the default.
+     * @param results if not null, receives true or false for each signature in order.
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public static boolean verifyBatch(byte[][] sigs, byte[][] pks, byte[][] ms, SecureRandom random,
+        boolean[] results)
+    {
+        return implVerifyBatch(sigs, pks, null, ms, random, results);
+    }
+
+    /**
+     * Verify a batch of Ed25519 signatures using a single random linear combination of the verification
+     * equations, falling back to verifying each signature in turn only if the combined check fails.
+     *
+     * @param sigs the signatures, each exactly {@link #SIGNATURE_SIZE} bytes.
+     * @param publicPoints the public points, one per signature.
+     * @param ms the messages, one per signature.
+     * @param random source of the random multipliers for the linear combination, or null for the default.
+     * @param results if not null, receives true or false for each signature in order.
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public static boolean verifyBatch(byte[][] sigs, PublicPoint[] publicPoints, byte[][] ms, SecureRandom random,
+        boolean[] results)
+    {
+        return implVerifyBatch(sigs, null, publicPoints, ms, random, results);
+    }
+
     public static boolean verifyPrehash(byte[] sig, int sigOff, byte[] pk, int pkOff, byte[] ctx, byte[] ph, int phOff)
     {
         byte phflag = 0x01;
@@ -319,17 +319,36 @@ class DilithiumEngine
     }
 
     public byte[] signSignature(byte[] msg, int msglen, byte[] rho, byte[] key, byte[] tr, byte[] t0Enc, byte[] s1Enc, byte[] s2Enc)
+    {
+        PolyVecL s1 = new PolyVecL(this);
+        PolyVecK t0 = new PolyVecK(this), s2 = new PolyVecK(this);
+        PolyVecMatrix aMatrix = new PolyVecMatrix(this);
+
+        Packing.unpackSecretKey(t0, s1, s2, t0Enc, s1Enc, s2Enc, this);
+
+        aMatrix.expandMatrix(rho);
+
+        s1.polyVecNtt();
+        s2.polyVecNtt();
+
+        t0.polyVecNtt();
+
+        return signSignature(msg, msglen, key, tr, aMatrix, s1, s2, t0);
+    }
+
+    /**
+     * Sign using an expanded matrix and secret vectors already in the NTT domain. None of aMatrix, s1, s2,
+     * or t0 are modified, so they can be shared between concurrent signing operations.
+     */
+    byte[] signSignature(byte[] msg, int msglen, byte[] key, byte[] tr, PolyVecMatrix aMatrix, PolyVecL s1, PolyVecK s2, PolyVecK t0)
     {
         int n;
         byte[] outSig = new byte[CryptoBytes + msglen];
         byte[] mu = new byte[CrhBytes], rhoPrime = new byte[CrhBytes];
         short nonce = 0;
-        PolyVecL s1 = new PolyVecL(this), y = new PolyVecL(this), z = new PolyVecL(this);
-        PolyVecK t0 = new PolyVecK(this), s2 = new PolyVecK(this), w1 = new PolyVecK(this), w0 = new PolyVecK(this), h = new PolyVecK(this);
+        PolyVecL y = new PolyVecL(this), z = new PolyVecL(this);
+        PolyVecK w1 = new PolyVecK(this), w0 = new PolyVecK(this), h = new PolyVecK(this);
         Poly cp = new Poly(this);
-        PolyVecMatrix aMatrix = new PolyVecMatrix(this);
-
-        Packing.unpackSecretKey(t0, s1, s2, t0Enc, s1Enc, s2Enc, this);
 
         this.shake256Digest.update(tr, 0, TrBytes);
         this.shake256Digest.update(msg, 0, msglen);
@@ -347,13 +366,6 @@ class DilithiumEngine
         shake256Digest.update(keyMu, 0, SeedBytes + RndBytes + CrhBytes);
         shake256Digest.doFinal(rhoPrime, 0, CrhBytes);
 
-        aMatrix.expandMatrix(rho);
-
-        s1.polyVecNtt();
-        s2.polyVecNtt();
-
-        t0.polyVecNtt();
-
         int count = 0;
         while (count < 1000)
         {
@@ -430,14 +442,9 @@ class DilithiumEngine
 
     public boolean signVerify(byte[] sig, int siglen, byte[] msg, int msglen, byte[] rho, byte[] encT1)
     {
-        byte[] buf,
-            mu = new byte[CrhBytes],
-            c,
-            c2 = new byte[DilithiumCTilde];
-        Poly cp = new Poly(this);
+        byte[] tr = new byte[TrBytes];
         PolyVecMatrix aMatrix = new PolyVecMatrix(this);
-        PolyVecL z = new PolyVecL(this);
-        PolyVecK t1 = new PolyVecK(this), w1 = new PolyVecK(this), h = new PolyVecK(this);
+        PolyVecK t1 = new PolyVecK(this);
 
         if (siglen != CryptoBytes)
         {
@@ -454,6 +461,38 @@ class DilithiumEngine
         // System.out.println("rho = ");
         // Helper.printByteArray(rho);
 
+        // Compute crh(rho, t1)
+        shake256Digest.update(rho, 0, rho.length);
+        shake256Digest.update(encT1, 0, encT1.length);
+        shake256Digest.doFinal(tr, 0, TrBytes);
+
+        aMatrix.expandMatrix(rho);
+
+        t1.shiftLeft();
+        t1.polyVecNtt();
+
+        return signVerify(sig, siglen, msg, msglen, tr, aMatrix, t1);
+    }
+
+    /**
+     * Verify using the hash of the public key, the expanded matrix, and t1 * 2^d already in the NTT domain.
+     * Neither aMatrix nor t1 is modified, so both can be shared between concurrent verifications.
+     */
+    boolean signVerify(byte[] sig, int siglen, byte[] msg, int msglen, byte[] tr, PolyVecMatrix aMatrix, PolyVecK t1)
+    {
+        byte[] buf,
+            mu = new byte[CrhBytes],
+            c,
+            c2 = new byte[DilithiumCTilde];
+        Poly cp = new Poly(this);
+        PolyVecL z = new PolyVecL(this);
+        PolyVecK ct1 = new PolyVecK(this), w1 = new PolyVecK(this), h = new PolyVecK(this);
+
+        if (siglen != CryptoBytes)
+        {
+            return false;
+        }
+
         if (!Packing.unpackSignature(z, h, sig, this))
         {
             return false;
@@ -469,13 +508,7 @@ class DilithiumEngine
         }
 
         // Compute crh(crh(rho, t1), msg)
-        shake256Digest.update(rho, 0, rho.length);
-        shake256Digest.update(encT1, 0, encT1.length);
-        shake256Digest.doFinal(mu, 0, TrBytes);
-        // System.out.println("mu before = ");
-        // Helper.printByteArray(mu);
-
-        shake256Digest.update(mu, 0, TrBytes);
+        shake256Digest.update(tr, 0, TrBytes);
         shake256Digest.update(msg, 0, msglen);
         shake256Digest.doFinal(mu, 0);
 
@@ -487,10 +520,6 @@ class DilithiumEngine
         // System.out.println("cp = ");
         // System.out.println(cp.toString());
 
-        aMatrix.expandMatrix(rho);
-        // System.out.println(aMatrix.toString("aMatrix = "));
-
-
         z.polyVecNtt();
         aMatrix.pointwiseMontgomery(w1, z);
 
@@ -498,13 +527,11 @@ class DilithiumEngine
         // System.out.println("cp = ");
         // System.out.println(cp.toString());
 
-        t1.shiftLeft();
-        t1.polyVecNtt();
-        t1.pointwisePolyMontgomery(cp, t1);
+        ct1.pointwisePolyMontgomery(cp, t1);
 
-        // System.out.println(t1.toString("t1"));
+        // System.out.println(ct1.toString("ct1"));
 
-        w1.subtract(t1);
+        w1.subtract(ct1);
         w1.reduce();
         w1.invNttToMont();
 
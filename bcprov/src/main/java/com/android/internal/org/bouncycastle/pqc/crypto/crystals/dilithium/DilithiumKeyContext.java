@@ -0,0 +1,105 @@
+package com.android.internal.org.bouncycastle.pqc.crypto.crystals.dilithium;
+
+import com.android.internal.org.bouncycastle.crypto.CipherParameters;
+import com.android.internal.org.bouncycastle.crypto.digests.SHAKEDigest;
+
+/**
+ * Precomputed state for repeated signing or verification with a single Dilithium key. The context holds the
+ * public matrix expanded from rho, and the key's vectors unpacked and transformed into the NTT domain, so they
+ * are not recalculated from the key encoding for every signature.
+ * <p>
+ * A context is immutable once created and can be used by several threads at once. Pass it to
+ * DilithiumSigner.init() in place of the key it was created from.
+ * </p>
+ */
+public class DilithiumKeyContext
+    implements CipherParameters
+{
+    private final DilithiumKeyParameters key;
+
+    final PolyVecMatrix aMatrix;
+
+    // signing
+    final byte[] k;
+    final byte[] tr;
+    final PolyVecL s1;
+    final PolyVecK s2;
+    final PolyVecK t0;
+
+    // verification
+    final PolyVecK t1;
+
+    /**
+     * Create a signing context for a private key.
+     *
+     * @param privKey the private key to sign with.
+     */
+    public DilithiumKeyContext(DilithiumPrivateKeyParameters privKey)
+    {
+        DilithiumEngine engine = privKey.getParameters().getEngine(null);
+
+        this.key = privKey;
+        this.aMatrix = new PolyVecMatrix(engine);
+        this.k = privKey.k;
+        this.tr = privKey.tr;
+        this.s1 = new PolyVecL(engine);
+        this.s2 = new PolyVecK(engine);
+        this.t0 = new PolyVecK(engine);
+        this.t1 = null;
+
+        Packing.unpackSecretKey(t0, s1, s2, privKey.t0, privKey.s1, privKey.s2, engine);
+
+        aMatrix.expandMatrix(privKey.rho);
+
+        s1.polyVecNtt();
+        s2.polyVecNtt();
+        t0.polyVecNtt();
+    }
+
+    /**
+     * Create a verification context for a public key.
+     *
+     * @param pubKey the public key to verify with.
+     */
+    public DilithiumKeyContext(DilithiumPublicKeyParameters pubKey)
+    {
+        DilithiumEngine engine = pubKey.getParameters().getEngine(null);
+
+        this.key = pubKey;
+        this.aMatrix = new PolyVecMatrix(engine);
+        this.k = null;
+        this.tr = new byte[DilithiumEngine.TrBytes];
+        this.s1 = null;
+        this.s2 = null;
+        this.t0 = null;
+
+        PolyVecK t1 = new PolyVecK(engine);
+        this.t1 = Packing.unpackPublicKey(t1, pubKey.t1, engine);
+
+        // crh(rho, t1), the first part of the message representative
+        SHAKEDigest shake256Digest = new SHAKEDigest(256);
+        shake256Digest.update(pubKey.rho, 0, pubKey.rho.length);
+        shake256Digest.update(pubKey.t1, 0, pubKey.t1.length);
+        shake256Digest.doFinal(tr, 0, DilithiumEngine.TrBytes);
+
+        aMatrix.expandMatrix(pubKey.rho);
+
+        this.t1.shiftLeft();
+        this.t1.polyVecNtt();
+    }
+
+    /**
+     * Return the key the context was created from.
+     *
+     * @return the private key for a signing context, the public key for a verification context.
+     */
+    public DilithiumKeyParameters getKey()
+    {
+        return key;
+    }
+
+    public boolean isPrivate()
+    {
+        return key.isPrivate();
+    }
+}
@@ -11,6 +11,7 @@ public class DilithiumSigner
 {
     private DilithiumPrivateKeyParameters privKey;
     private DilithiumPublicKeyParameters pubKey;
+    private DilithiumKeyContext context;
 
     private SecureRandom random;
 
@@ -18,24 +19,55 @@ public class DilithiumSigner
     {
     }
 
+    /**
+     * Initialise the signer. As well as a private or public key, param can be a DilithiumKeyContext
+     * created from one, in which case the precomputed values in the context are used.
+     */
     public void init(boolean forSigning, CipherParameters param)
     {
+        context = null;
+
         if (forSigning)
         {
             if (param instanceof ParametersWithRandom)
             {
-                privKey = (DilithiumPrivateKeyParameters)((ParametersWithRandom)param).getParameters();
                 random = ((ParametersWithRandom)param).getRandom();
+                param = ((ParametersWithRandom)param).getParameters();
             }
             else
             {
-                privKey = (DilithiumPrivateKeyParameters)param;
                 random = null;
             }
+
+            if (param instanceof DilithiumKeyContext)
+            {
+                context = (DilithiumKeyContext)param;
+                if (!context.isPrivate())
+                {
+                    throw new IllegalArgumentException("signing requires a context created from a private key");
+                }
+                privKey = (DilithiumPrivateKeyParameters)context.getKey();
+            }
+            else
+            {
+                privKey = (DilithiumPrivateKeyParameters)param;
+            }
         }
         else
         {
-            pubKey = (DilithiumPublicKeyParameters)param;
+            if (param instanceof DilithiumKeyContext)
+            {
+                context = (DilithiumKeyContext)param;
+                if (context.isPrivate())
+                {
+                    throw new IllegalArgumentException("verification requires a context created from a public key");
+                }
+                pubKey = (DilithiumPublicKeyParameters)context.getKey();
+            }
+            else
+            {
+                pubKey = (DilithiumPublicKeyParameters)param;
+            }
         }
     }
 
@@ -43,6 +75,11 @@ public class DilithiumSigner
     {
         DilithiumEngine engine = privKey.getParameters().getEngine(random);
 
+        if (context != null)
+        {
+            return engine.signSignature(message, message.length, context.k, context.tr, context.aMatrix, context.s1, context.s2, context.t0);
+        }
+
         return engine.sign(message, message.length, privKey.rho, privKey.k, privKey.tr, privKey.t0, privKey.s1, privKey.s2);
     }
 
@@ -50,6 +87,11 @@ public class DilithiumSigner
     {
         DilithiumEngine engine = pubKey.getParameters().getEngine(random);
 
+        if (context != null)
+        {
+            return engine.signVerify(signature, signature.length, message, message.length, context.tr, context.aMatrix, context.t1);
+        }
+
         return engine.signOpen(message, signature, signature.length, pubKey.rho, pubKey.t1);
     }
 }
@@ -1,5 +1,6 @@
 package com.android.internal.org.bouncycastle.pqc.crypto.crystals.dilithium;
 
+import com.android.internal.org.bouncycastle.crypto.digests.SHAKEBatch;
 import com.android.internal.org.bouncycastle.crypto.digests.SHAKEDigest;
 
 class Poly
@@ -93,24 +94,85 @@ class Poly
 
     }
 
-    public void uniformEta(byte[] seed, short nonce)
+    /**
+     * Sample each of polys uniformly, as uniformBlocks(seed, nonces[i]) does, using a batch of XOF streams.
+     */
+    static void uniformBlocks(Poly[] polys, byte[] seed, short[] nonces)
+    {
+        Symmetric symmetric = polys[0].symmetric;
+        SHAKEBatch xofs = symmetric.stream128batch(polys.length);
+        if (xofs == null)
+        {
+            for (int p = 0; p != polys.length; p++)
+            {
+                polys[p].uniformBlocks(seed, nonces[p]);
+            }
+            return;
+        }
+
+        startStreams(xofs, seed, nonces);
+
+        int i, ctr, off, buflen,
+            streamLen = polys[0].polyUniformNBlocks * symmetric.stream128BlockBytes;
+        byte[] buf = new byte[streamLen + 2];
+
+        for (int p = 0; p != polys.length; p++)
+        {
+            Poly poly = polys[p];
+
+            buflen = streamLen;
+            xofs.squeeze(p, buf, 0, buflen);
+
+            ctr = rejectUniform(poly, 0, poly.dilithiumN, buf, buflen);
+
+            while (ctr < poly.dilithiumN)
+            {
+                off = buflen % 3;
+                for (i = 0; i < off; ++i)
+                {
+                    buf[i] = buf[buflen - off + i];
+                }
+                xofs.squeeze(p, buf, off, symmetric.stream128BlockBytes);
+                buflen = symmetric.stream128BlockBytes + off;
+                ctr += rejectUniform(poly, ctr, poly.dilithiumN - ctr, buf, buflen);
+            }
+        }
+    }
+
+    private static void startStreams(SHAKEBatch xofs, byte[] seed, short[] nonces)
     {
-        int ctr, polyUniformEtaNBlocks, eta = engine.getDilithiumEta();
+        byte[] in = new byte[seed.length + 2];
 
+        System.arraycopy(seed, 0, in, 0, seed.length);
+        for (int i = 0; i != nonces.length; i++)
+        {
+            in[seed.length] = (byte)nonces[i];
+            in[seed.length + 1] = (byte)(nonces[i] >> 8);
+            xofs.init(i, in, 0, in.length);
+        }
+    }
+
+    private int uniformEtaNBlocks()
+    {
         if (engine.getDilithiumEta() == 2)
         {
-            polyUniformEtaNBlocks = ((136 + symmetric.stream256BlockBytes - 1) / symmetric.stream256BlockBytes); // TODO: change with class
+            return ((136 + symmetric.stream256BlockBytes - 1) / symmetric.stream256BlockBytes); // TODO: change with class
         }
         else if (engine.getDilithiumEta() == 4)
         {
-            polyUniformEtaNBlocks = ((227 + symmetric.stream256BlockBytes - 1) / symmetric.stream256BlockBytes); // TODO: change with class
+            return ((227 + symmetric.stream256BlockBytes - 1) / symmetric.stream256BlockBytes); // TODO: change with class
         }
         else
         {
             throw new RuntimeException("Wrong Dilithium Eta!");
         }
+    }
 
-        int buflen = polyUniformEtaNBlocks * symmetric.stream256BlockBytes;
+    public void uniformEta(byte[] seed, short nonce)
+    {
+        int ctr, eta = engine.getDilithiumEta();
+
+        int buflen = uniformEtaNBlocks() * symmetric.stream256BlockBytes;
 
         byte[] buf = new byte[buflen];
 
@@ -127,6 +189,44 @@ class Poly
 
     }
 
+    /**
+     * Sample each of polys, as uniformEta(seed, nonces[i]) does, using a batch of XOF streams.
+     */
+    static void uniformEta(Poly[] polys, byte[] seed, short[] nonces)
+    {
+        Symmetric symmetric = polys[0].symmetric;
+        SHAKEBatch xofs = symmetric.stream256batch(polys.length);
+        if (xofs == null)
+        {
+            for (int p = 0; p != polys.length; p++)
+            {
+                polys[p].uniformEta(seed, nonces[p]);
+            }
+            return;
+        }
+
+        startStreams(xofs, seed, nonces);
+
+        int ctr, eta = polys[0].engine.getDilithiumEta();
+        int buflen = polys[0].uniformEtaNBlocks() * symmetric.stream256BlockBytes;
+        byte[] buf = new byte[buflen];
+
+        for (int p = 0; p != polys.length; p++)
+        {
+            Poly poly = polys[p];
+
+            xofs.squeeze(p, buf, 0, buflen);
+
+            ctr = rejectEta(poly, 0, poly.dilithiumN, buf, buflen, eta);
+
+            while (ctr < DilithiumEngine.DilithiumN)
+            {
+                xofs.squeeze(p, buf, 0, symmetric.stream256BlockBytes);
+                ctr += rejectEta(poly, ctr, poly.dilithiumN - ctr, buf, symmetric.stream256BlockBytes, eta);
+            }
+        }
+    }
+
     private static int rejectEta(Poly outputPoly, int coeffOff, int len, byte[] buf, int buflen, int eta)
     {
         int ctr, pos;
@@ -470,6 +570,34 @@ class Poly
         this.unpackZ(buf);
     }
 
+    /**
+     * Sample each of polys, as uniformGamma1(seed, nonces[i]) does, using a batch of XOF streams.
+     */
+    static void uniformGamma1(Poly[] polys, byte[] seed, short[] nonces)
+    {
+        Symmetric symmetric = polys[0].symmetric;
+        SHAKEBatch xofs = symmetric.stream256batch(polys.length);
+        if (xofs == null)
+        {
+            for (int p = 0; p != polys.length; p++)
+            {
+                polys[p].uniformGamma1(seed, nonces[p]);
+            }
+            return;
+        }
+
+        startStreams(xofs, seed, nonces);
+
+        byte[] buf = new byte[polys[0].engine.getPolyUniformGamma1NBlocks() * symmetric.stream256BlockBytes];
+
+        for (int p = 0; p != polys.length; p++)
+        {
+            xofs.squeeze(p, buf, 0, buf.length);
+
+            polys[p].unpackZ(buf);
+        }
+    }
+
     private void unpackZ(byte[] a)
     {
         int i;
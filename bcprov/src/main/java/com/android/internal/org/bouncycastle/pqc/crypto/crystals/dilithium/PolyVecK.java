@@ -43,11 +43,13 @@ class PolyVecK
     {
         int i;
         short n = nonce;
+        short[] nonces = new short[dilithiumK];
         for (i = 0; i < dilithiumK; ++i)
         {
-            getVectorIndex(i).uniformEta(seed, n++);
+            nonces[i] = n++;
         }
 
+        Poly.uniformEta(vec, seed, nonces);
     }
 
     public void reduce()
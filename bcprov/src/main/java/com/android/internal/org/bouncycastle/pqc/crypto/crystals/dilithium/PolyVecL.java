@@ -47,11 +47,13 @@ class PolyVecL
     {
         int i;
         short n = nonce;
+        short[] nonces = new short[dilithiumL];
         for (i = 0; i < dilithiumL; ++i)
         {
-            getVectorIndex(i).uniformEta(seed, n++);
+            nonces[i] = n++;
         }
 
+        Poly.uniformEta(vec, seed, nonces);
     }
 
     public void copyPolyVecL(PolyVecL outPoly)
@@ -77,11 +79,13 @@ class PolyVecL
     public void uniformGamma1(byte[] seed, short nonce)
     {
         int i;
+        short[] nonces = new short[dilithiumL];
         for (i = 0; i < dilithiumL; ++i)
         {
-            this.getVectorIndex(i).uniformGamma1(seed, (short)(dilithiumL * nonce + i));
+            nonces[i] = (short)(dilithiumL * nonce + i);
         }
 
+        Poly.uniformGamma1(vec, seed, nonces);
     }
 
     public void pointwisePolyMontgomery(Poly a, PolyVecL v)
@@ -36,13 +36,18 @@ class PolyVecMatrix
     public void expandMatrix(byte[] rho)
     {
         int i, j;
+        Poly[] polys = new Poly[dilithiumK * dilithiumL];
+        short[] nonces = new short[dilithiumK * dilithiumL];
         for (i = 0; i < dilithiumK; ++i)
         {
             for (j = 0; j < dilithiumL; ++j)
             {
-                this.mat[i].getVectorIndex(j).uniformBlocks(rho, (short)((i << 8) + j));
+                polys[i * dilithiumL + j] = this.mat[i].getVectorIndex(j);
+                nonces[i * dilithiumL + j] = (short)((i << 8) + j);
             }
         }
+
+        Poly.uniformBlocks(polys, rho, nonces);
     }
 
     private String addString()
@@ -1,6 +1,7 @@
 package com.android.internal.org.bouncycastle.pqc.crypto.crystals.dilithium;
 
 import com.android.internal.org.bouncycastle.crypto.StreamCipher;
+import com.android.internal.org.bouncycastle.crypto.digests.SHAKEBatch;
 import com.android.internal.org.bouncycastle.crypto.digests.SHAKEDigest;
 import com.android.internal.org.bouncycastle.crypto.engines.AESEngine;
 import com.android.internal.org.bouncycastle.crypto.modes.SICBlockCipher;
@@ -27,6 +28,21 @@ abstract class Symmetric
 
     abstract void stream256squeezeBlocks(byte[] output, int offset, int size);
 
+    /**
+     * Return count stream128 instances which can be run as a batch, or null if the stream does not support it.
+     */
+    SHAKEBatch stream128batch(int count)
+    {
+        return null;
+    }
+
+    /**
+     * Return count stream256 instances which can be run as a batch, or null if the stream does not support it.
+     */
+    SHAKEBatch stream256batch(int count)
+    {
+        return null;
+    }
 
     /**
      * @deprecated
@@ -141,5 +157,17 @@ abstract class Symmetric
         {
             digest256.doOutput(output, offset, size);
         }
+
+        @Override
+        SHAKEBatch stream128batch(int count)
+        {
+            return new SHAKEBatch(128, count);
+        }
+
+        @Override
+        SHAKEBatch stream256batch(int count)
+        {
+            return new SHAKEBatch(256, count);
+        }
     }
 }
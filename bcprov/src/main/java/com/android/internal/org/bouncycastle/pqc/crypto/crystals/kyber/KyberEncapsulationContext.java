@@ -0,0 +1,59 @@
+package com.android.internal.org.bouncycastle.pqc.crypto.crystals.kyber;
+
+/**
+ * Precomputed state for repeated encapsulation to a single Kyber public key: the validated and unpacked
+ * public key, its hash, and the public matrix expanded from rho in the NTT domain. With a context an
+ * encapsulation only has to sample the noise and do the NTTs of the encryption itself.
+ * <p>
+ * A context is immutable once created and can be used by several threads at once.
+ * </p>
+ */
+public class KyberEncapsulationContext
+{
+    private final KyberPublicKeyParameters publicKey;
+
+    final byte[] publicKeyHash;
+    final PolyVec publicKeyPolyVec;
+    final PolyVec[] aMatrixTranspose;
+
+    /**
+     * Create the context for a public key.
+     *
+     * @param publicKey the public key to be encapsulated to.
+     * @throws IllegalArgumentException if the public key fails the ML-KEM encapsulation input checks.
+     */
+    public KyberEncapsulationContext(KyberPublicKeyParameters publicKey)
+    {
+        KyberEngine engine = publicKey.getParameters().getEngine();
+        int kyberK = engine.getKyberK();
+
+        this.publicKey = publicKey;
+        this.publicKeyHash = new byte[KyberEngine.KyberSymBytes];
+        this.publicKeyPolyVec = new PolyVec(engine);
+        this.aMatrixTranspose = new PolyVec[kyberK];
+        for (int i = 0; i < kyberK; i++)
+        {
+            aMatrixTranspose[i] = new PolyVec(engine);
+        }
+
+        engine.expandPublicKey(publicKey.getEncoded(), publicKeyPolyVec, aMatrixTranspose, publicKeyHash);
+    }
+
+    public KyberPublicKeyParameters getPublicKey()
+    {
+        return publicKey;
+    }
+
+    /**
+     * Return the approximate number of bytes held by the precomputed values in this context.
+     *
+     * @return the size of the context's precomputed state in bytes.
+     */
+    public int getMemorySize()
+    {
+        int kyberK = aMatrixTranspose.length;
+
+        // k x k matrix plus the public key vector, each polynomial being KyberN shorts.
+        return (kyberK * kyberK + kyberK) * KyberEngine.KyberN * 2 + publicKeyHash.length;
+    }
+}
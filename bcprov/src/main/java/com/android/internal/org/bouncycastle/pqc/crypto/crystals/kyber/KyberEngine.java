@@ -217,6 +217,25 @@ class KyberEngine
     }
 
     public byte[][] kemEncrypt(byte[] publicKeyInput)
+    {
+        PolyVec publicKeyPolyVec = new PolyVec(this);
+        PolyVec[] aMatrixTranspose = new PolyVec[KyberK];
+        for (int i = 0; i < KyberK; i++)
+        {
+            aMatrixTranspose[i] = new PolyVec(this);
+        }
+        byte[] publicKeyHash = new byte[KyberSymBytes];
+
+        expandPublicKey(publicKeyInput, publicKeyPolyVec, aMatrixTranspose, publicKeyHash);
+
+        return kemEncrypt(publicKeyPolyVec, aMatrixTranspose, publicKeyHash);
+    }
+
+    /**
+     * Validate an encoded public key as kemEncrypt() does, then unpack it, expand its transposed matrix, and
+     * calculate its hash, ready for repeated encapsulation.
+     */
+    void expandPublicKey(byte[] publicKeyInput, PolyVec publicKeyPolyVec, PolyVec[] aMatrixTranspose, byte[] publicKeyHash)
     {
         // Input validation (6.2 ML-KEM Encaps)
         // Type Check
@@ -225,17 +244,29 @@ class KyberEngine
             throw new IllegalArgumentException("Input validation Error: Type check failed for ml-kem encapsulation");
         }
         // Modulus Check
-        PolyVec polyVec = new PolyVec(this);
-        byte[] seed = indCpa.unpackPublicKey(polyVec, publicKeyInput);
-        byte[] ek = indCpa.packPublicKey(polyVec, seed);
+        byte[] seed = indCpa.unpackPublicKey(publicKeyPolyVec, publicKeyInput);
+        byte[] ek = indCpa.packPublicKey(publicKeyPolyVec, seed);
         if (!Arrays.areEqual(ek, publicKeyInput))
         {
             throw new IllegalArgumentException("Input validation: Modulus check failed for ml-kem encapsulation");
         }
 
+        indCpa.generateMatrix(aMatrixTranspose, seed, true);
+
+        symmetric.hash_h(publicKeyHash, publicKeyInput, 0);
+    }
 
-        byte[] outputCipherText;
+    /**
+     * Encapsulate to the public key held in a precomputed context. The context has already been through
+     * the input validation, and holds the hash of the public key and the expanded matrix.
+     */
+    byte[][] kemEncrypt(KyberEncapsulationContext context)
+    {
+        return kemEncrypt(context.publicKeyPolyVec, context.aMatrixTranspose, context.publicKeyHash);
+    }
 
+    private byte[][] kemEncrypt(PolyVec publicKeyPolyVec, PolyVec[] aMatrixTranspose, byte[] publicKeyHash)
+    {
         byte[] buf = new byte[2 * KyberSymBytes];
         byte[] kr = new byte[2 * KyberSymBytes];
 
@@ -246,23 +277,20 @@ class KyberEngine
         System.arraycopy(randBytes, 0, buf, 0, KyberSymBytes);
 
         // SHA3-256 Public Key
-        symmetric.hash_h(buf, publicKeyInput, KyberSymBytes);
+        System.arraycopy(publicKeyHash, 0, buf, KyberSymBytes, KyberSymBytes);
 
         // SHA3-512( SHA3-256(RandBytes) || SHA3-256(PublicKey) )
         symmetric.hash_g(kr, buf);
 
         // IndCpa Encryption
-        outputCipherText = indCpa.encrypt(Arrays.copyOfRange(buf, 0, KyberSymBytes), publicKeyInput, Arrays.copyOfRange(kr, 32, kr.length));
+        byte[] outputCipherText = indCpa.encrypt(Arrays.copyOfRange(buf, 0, KyberSymBytes),
+            publicKeyPolyVec, aMatrixTranspose, Arrays.copyOfRange(kr, KyberSymBytes, kr.length));
 
         byte[] outputSharedSecret = new byte[sessionKeyLength];
 
         System.arraycopy(kr, 0, outputSharedSecret, 0, outputSharedSecret.length);
-        
-        byte[][] outBuf = new byte[2][];
-        outBuf[0] = outputSharedSecret;
-        outBuf[1] = outputCipherText;
 
-        return outBuf;
+        return new byte[][]{ outputSharedSecret, outputCipherText };
     }
 
     public byte[] kemDecrypt(byte[] cipherText, byte[] secretKey)
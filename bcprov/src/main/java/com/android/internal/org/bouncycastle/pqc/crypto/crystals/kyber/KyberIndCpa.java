@@ -145,15 +145,8 @@ class KyberIndCpa
     {
         int i;
         byte[] seed;
-        byte nonce = (byte)0;
-        PolyVec sp = new PolyVec(engine),
-            publicKeyPolyVec = new PolyVec(engine),
-            errorPolyVector = new PolyVec(engine),
-            bp = new PolyVec(engine);
+        PolyVec publicKeyPolyVec = new PolyVec(engine);
         PolyVec[] aMatrixTranspose = new PolyVec[engine.getKyberK()];
-        Poly errorPoly = new Poly(engine),
-            v = new Poly(engine),
-            k = new Poly(engine);
 
 
         // System.out.print("publickeyinput = ");
@@ -173,8 +166,6 @@ class KyberIndCpa
         // Helper.printByteArray(seed);
         // System.out.println();
 
-        k.fromMsg(msg);
-
         for (i = 0; i < kyberK; i++)
         {
             aMatrixTranspose[i] = new PolyVec(engine);
@@ -195,6 +186,25 @@ class KyberIndCpa
         //     System.out.println("] ,");
         // }
 
+        return encrypt(msg, publicKeyPolyVec, aMatrixTranspose, coins);
+    }
+
+    /**
+     * Encrypt using an already unpacked public key and expanded transposed matrix. Neither is modified, so
+     * both can be shared between concurrent encryptions.
+     */
+    byte[] encrypt(byte[] msg, PolyVec publicKeyPolyVec, PolyVec[] aMatrixTranspose, byte[] coins)
+    {
+        int i;
+        byte nonce = (byte)0;
+        PolyVec sp = new PolyVec(engine),
+            errorPolyVector = new PolyVec(engine),
+            bp = new PolyVec(engine);
+        Poly errorPoly = new Poly(engine),
+            v = new Poly(engine),
+            k = new Poly(engine);
+
+        k.fromMsg(msg);
 
         for (i = 0; i < kyberK; i++)
         {
@@ -1,29 +1,188 @@
 package com.android.internal.org.bouncycastle.pqc.crypto.crystals.kyber;
 
 import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.android.internal.org.bouncycastle.crypto.EncapsulatedSecretGenerator;
 import com.android.internal.org.bouncycastle.crypto.SecretWithEncapsulation;
 import com.android.internal.org.bouncycastle.crypto.params.AsymmetricKeyParameter;
 import com.android.internal.org.bouncycastle.pqc.crypto.util.SecretWithEncapsulationImpl;
+import com.android.internal.org.bouncycastle.util.Arrays;
 
+/**
+ * Generator for Kyber encapsulations.
+ * <p>
+ * If constructed with a context cache size, the generator keeps a least recently used cache of
+ * KyberEncapsulationContext objects for the public keys it has seen, so repeated encapsulation to the same key
+ * does not expand the public matrix each time.
+ * </p>
+ */
 public class KyberKEMGenerator
     implements EncapsulatedSecretGenerator
 {
     // the source of randomness
     private final SecureRandom sr;
 
+    private final Map contexts;
+
+    private long hits = 0;
+    private long misses = 0;
+
     public KyberKEMGenerator(SecureRandom random)
     {
         this.sr = random;
+        this.contexts = null;
+    }
+
+    /**
+     * Create a generator which caches the encapsulation contexts of up to maxContexts public keys.
+     *
+     * @param random the source of randomness.
+     * @param maxContexts the maximum number of public key contexts to cache.
+     */
+    public KyberKEMGenerator(SecureRandom random, final int maxContexts)
+    {
+        if (maxContexts < 1)
+        {
+            throw new IllegalArgumentException("maxContexts must be at least 1");
+        }
+
+        this.sr = random;
+        this.contexts = new LinkedHashMap(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry eldest)
+            {
+                return size() > maxContexts;
+            }
+        };
     }
 
     public SecretWithEncapsulation generateEncapsulated(AsymmetricKeyParameter recipientKey)
     {
         KyberPublicKeyParameters key = (KyberPublicKeyParameters)recipientKey;
+
+        if (contexts != null)
+        {
+            return generateEncapsulated(getContext(key));
+        }
+
         KyberEngine engine = key.getParameters().getEngine();
         engine.init(sr);
         byte[][] kemEncrypt = engine.kemEncrypt(key.getEncoded());
         return new SecretWithEncapsulationImpl(kemEncrypt[0], kemEncrypt[1]);
     }
+
+    /**
+     * Generate an encapsulation for the public key of a precomputed context.
+     *
+     * @param context the context for the recipient's public key.
+     * @return the secret and its encapsulation.
+     */
+    public SecretWithEncapsulation generateEncapsulated(KyberEncapsulationContext context)
+    {
+        KyberEngine engine = context.getPublicKey().getParameters().getEngine();
+        engine.init(sr);
+        byte[][] kemEncrypt = engine.kemEncrypt(context);
+        return new SecretWithEncapsulationImpl(kemEncrypt[0], kemEncrypt[1]);
+    }
+
+    /**
+     * Return the number of encapsulations which found their public key's context in the cache.
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Return the number of encapsulations which had to create a context for their public key.
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Return the number of public key contexts currently cached.
+     */
+    public synchronized int getCachedContextCount()
+    {
+        return (contexts == null) ? 0 : contexts.size();
+    }
+
+    /**
+     * Return the approximate number of bytes of precomputed state held by the cached contexts.
+     */
+    public synchronized long getCachedMemorySize()
+    {
+        if (contexts == null)
+        {
+            return 0;
+        }
+
+        long size = 0;
+        for (Iterator it = contexts.values().iterator(); it.hasNext();)
+        {
+            size += ((KyberEncapsulationContext)it.next()).getMemorySize();
+        }
+        return size;
+    }
+
+    private KyberEncapsulationContext getContext(KyberPublicKeyParameters key)
+    {
+        Encoding encoding = new Encoding(key.getEncoded());
+
+        synchronized (this)
+        {
+            KyberEncapsulationContext context = (KyberEncapsulationContext)contexts.get(encoding);
+            if (context != null && context.getPublicKey().getParameters() == key.getParameters())
+            {
+                ++hits;
+                return context;
+            }
+            ++misses;
+        }
+
+        // expanding the matrix is the expensive part, so it is done outside the lock.
+        KyberEncapsulationContext context = new KyberEncapsulationContext(key);
+
+        synchronized (this)
+        {
+            contexts.put(encoding, context);
+        }
+
+        return context;
+    }
+
+    private static class Encoding
+    {
+        private final byte[] encoding;
+        private final int hashCode;
+
+        Encoding(byte[] encoding)
+        {
+            this.encoding = encoding;
+            this.hashCode = Arrays.hashCode(encoding);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof Encoding))
+            {
+                return false;
+            }
+            return Arrays.areEqual(encoding, ((Encoding)o).encoding);
+        }
+    }
 }
@@ -189,14 +189,38 @@ public class LMSPrivateKeyParameters
     }
 
     public LMSContext generateLMSContext()
+    {
+        int q = getIndex();
+        LMOtsPrivateKey otsPk = getNextOtsPrivateKey();
+
+        return generateLMSContext(q, otsPk);
+    }
+
+    /**
+     * Generate a context for an index the caller has already reserved, see reserveIndexes(), using a path from
+     * getAuthPath(). The key's own index is not used or changed, and the tree cache is not looked at, so no lock
+     * is taken on the key or its cache.
+     */
+    LMSContext generateLMSContext(int q, byte[][] path)
+    {
+        return new LMOtsPrivateKey(otsParameters, I, q, masterSecret).getSignatureContext(parameters, path);
+    }
+
+    private LMSContext generateLMSContext(int q, LMOtsPrivateKey otsPk)
+    {
+        return otsPk.getSignatureContext(this.getSigParameters(), getAuthPath(q));
+    }
+
+    /**
+     * Return the authentication path for the leaf at index q.
+     */
+    byte[][] getAuthPath(int q)
     {
         // Step 1.
         LMSigParameters lmsParameter = this.getSigParameters();
 
         // Step 2
         int h = lmsParameter.getH();
-        int q = getIndex();
-        LMOtsPrivateKey otsPk = getNextOtsPrivateKey();
 
         int i = 0;
         int r = (1 << h) + q;
@@ -210,7 +234,7 @@ public class LMSPrivateKeyParameters
             i++;
         }
 
-        return otsPk.getSignatureContext(this.getSigParameters(), path);
+        return path;
     }
 
     public byte[] generateSignature(LMSContext context)
@@ -240,6 +264,24 @@ public class LMSPrivateKeyParameters
     }
 
 
+    /**
+     * Move the key's index on by count, returning the first of the count indexes passed over for the caller
+     * to sign with.
+     */
+    int reserveIndexes(int count)
+    {
+        synchronized (this)
+        {
+            if (count > maxQ - q)
+            {
+                throw new ExhaustedPrivateKeyException("ots private key exhausted");
+            }
+            int start = q;
+            q += count;
+            return start;
+        }
+    }
+
     /**
      * Return a key that can be used usageCount times.
      * <p>
@@ -0,0 +1,209 @@
+package com.android.internal.org.bouncycastle.pqc.crypto.lms;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.android.internal.org.bouncycastle.pqc.crypto.ExhaustedPrivateKeyException;
+
+/**
+ * Context based signer for an LMS or HSS private key whose index is tracked by an LMSStateStore.
+ * <p>
+ * Indexes are reserved from the key in blocks of up to blockSize. Reserving a block moves the store's reserved
+ * index past the block, a single small durable write, before any index in it is handed out. Within a block an
+ * index is claimed with an atomic increment, and its authentication path is looked up by the caller that claimed
+ * it, outside the signer's lock, so concurrent callers of generateLMSContext() only queue on the signer while a
+ * new block is reserved. When a signer is created the key is moved on to the store's reserved index, so indexes
+ * reserved before a crash are skipped rather than reused - the cost is that the unused part of the last block is
+ * lost.
+ * </p>
+ * <p>
+ * Once passed to a signer the key should not be used directly. The key's own encoding no longer needs to be
+ * rewritten after signing, the store records the key's progress. For an HSS key a block never crosses into a
+ * new bottom level tree, so the signed public keys of the levels above stay the same for the whole block.
+ * </p>
+ */
+public class LMSReservingSigner
+    implements LMSContextBasedSigner
+{
+    private final LMSContextBasedSigner key;
+    private final LMSStateStore store;
+    private final int blockSize;
+
+    private volatile Block block;
+
+    /**
+     * Create a signer for key, reserving indexes in blocks of blockSize from store.
+     *
+     * @param key an LMSPrivateKeyParameters or HSSPrivateKeyParameters.
+     * @param store the store for the key's reserved index.
+     * @param blockSize the maximum number of indexes reserved by a single write to the store.
+     * @throws IOException if the store cannot be read.
+     */
+    public LMSReservingSigner(LMSContextBasedSigner key, LMSStateStore store, int blockSize)
+        throws IOException
+    {
+        if (!(key instanceof LMSPrivateKeyParameters) && !(key instanceof HSSPrivateKeyParameters))
+        {
+            throw new IllegalArgumentException("key must be an LMS or HSS private key");
+        }
+        if (blockSize < 1)
+        {
+            throw new IllegalArgumentException("blockSize must be at least 1");
+        }
+
+        this.key = key;
+        this.store = store;
+        this.blockSize = blockSize;
+
+        long skip = Math.min(store.getReservedIndex() - getKeyIndex(), key.getUsagesRemaining());
+        while (skip > 0)
+        {
+            int count = (int)Math.min(skip, Integer.MAX_VALUE);
+
+            if (key instanceof LMSPrivateKeyParameters)
+            {
+                ((LMSPrivateKeyParameters)key).reserveIndexes(count);
+            }
+            else
+            {
+                ((HSSPrivateKeyParameters)key).extractKeyShard(count);
+            }
+            skip -= count;
+        }
+    }
+
+    public LMSContext generateLMSContext()
+    {
+        Block current = block;
+
+        for (;;)
+        {
+            if (current != null)
+            {
+                int k = current.next.getAndIncrement();
+                if (k < current.count)
+                {
+                    return current.getContext(k);
+                }
+            }
+
+            synchronized (this)
+            {
+                if (block == current)
+                {
+                    block = reserveBlock();
+                }
+                current = block;
+            }
+        }
+    }
+
+    public byte[] generateSignature(LMSContext context)
+    {
+        return key.generateSignature(context);
+    }
+
+    public long getUsagesRemaining()
+    {
+        Block current = block;
+
+        long remaining = key.getUsagesRemaining();
+        if (current != null)
+        {
+            remaining += Math.max(0, current.count - current.next.get());
+        }
+        return remaining;
+    }
+
+    private long getKeyIndex()
+    {
+        if (key instanceof LMSPrivateKeyParameters)
+        {
+            return ((LMSPrivateKeyParameters)key).getIndex();
+        }
+        return ((HSSPrivateKeyParameters)key).getIndex();
+    }
+
+    private Block reserveBlock()
+    {
+        long start = getKeyIndex();
+        long limit = Math.min(blockSize, key.getUsagesRemaining());
+
+        if (limit <= 0)
+        {
+            throw new ExhaustedPrivateKeyException("private key exhausted");
+        }
+
+        if (key instanceof LMSPrivateKeyParameters)
+        {
+            LMSPrivateKeyParameters lmsKey = (LMSPrivateKeyParameters)key;
+            int count = (int)limit;
+
+            updateStore(start + count);
+
+            return new Block(count, lmsKey, lmsKey.reserveIndexes(count), null);
+        }
+
+        HSSPrivateKeyParameters hssKey = (HSSPrivateKeyParameters)key;
+        int L = hssKey.getL();
+        long treeSize = 1L << hssKey.getLMSParameters()[L - 1].getLMSigParam().getH();
+        int count = (int)Math.min(limit, treeSize - (start & (treeSize - 1)));
+
+        updateStore(start + count);
+
+        HSSPrivateKeyParameters shard = hssKey.extractKeyShard(count);
+
+        HSS.rangeTestKeys(shard);
+
+        List<LMSPrivateKeyParameters> keys = shard.getKeys();
+        List<LMSSignature> sig = shard.getSig();
+        LMSSignedPubKey[] signedPubKeys = new LMSSignedPubKey[L - 1];
+        for (int i = 0; i < L - 1; i++)
+        {
+            signedPubKeys[i] = new LMSSignedPubKey(sig.get(i), keys.get(i + 1).getPublicKey());
+        }
+
+        LMSPrivateKeyParameters bottomKey = keys.get(L - 1);
+
+        return new Block(count, bottomKey, bottomKey.getIndex(), signedPubKeys);
+    }
+
+    private void updateStore(long reservedIndex)
+    {
+        try
+        {
+            store.setReservedIndex(reservedIndex);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("unable to reserve key indexes: " + e.getMessage(), e);
+        }
+    }
+
+    private static class Block
+    {
+        final AtomicInteger next = new AtomicInteger(0);
+        final int count;
+
+        private final LMSPrivateKeyParameters lmsKey;
+        private final int firstQ;
+        private final LMSSignedPubKey[] signedPubKeys;
+
+        Block(int count, LMSPrivateKeyParameters lmsKey, int firstQ, LMSSignedPubKey[] signedPubKeys)
+        {
+            this.count = count;
+            this.lmsKey = lmsKey;
+            this.firstQ = firstQ;
+            this.signedPubKeys = signedPubKeys;
+        }
+
+        LMSContext getContext(int k)
+        {
+            int q = firstQ + k;
+            LMSContext context = lmsKey.generateLMSContext(q, lmsKey.getAuthPath(q));
+
+            return (signedPubKeys != null) ? context.withSignedPublicKeys(signedPubKeys) : context;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.android.internal.org.bouncycastle.pqc.crypto.lms;
+
+import java.io.IOException;
+
+/**
+ * Durable record of how far the index of an LMS or HSS private key has been reserved. Every index below the
+ * reserved index must be treated as used, whether or not a signature was actually produced with it, so a key
+ * restored after a crash carries on from the reserved index and a one time signature key is never used twice.
+ * <p>
+ * See LMSReservingSigner, which reserves indexes in blocks so the store is only written once per block.
+ * </p>
+ */
+public interface LMSStateStore
+{
+    /**
+     * Return the reserved index recorded in the store.
+     *
+     * @return the reserved index, 0 if nothing has been reserved yet.
+     * @throws IOException if the store cannot be read.
+     */
+    long getReservedIndex()
+        throws IOException;
+
+    /**
+     * Record a new reserved index. The method must not return until the new value is durable.
+     *
+     * @param index the new reserved index, which must not be less than the current one.
+     * @throws IOException if the store cannot be written.
+     */
+    void setReservedIndex(long index)
+        throws IOException;
+}
@@ -0,0 +1,162 @@
+package com.android.internal.org.bouncycastle.pqc.crypto.lms;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+
+/**
+ * An LMSStateStore kept in a small memory mapped file.
+ * <p>
+ * The file holds two slots, each a reserved index followed by its complement. Updates go to the slot holding
+ * the older value and are forced to the device before setReservedIndex() returns. If a write is torn by a
+ * crash the damaged slot fails its check, and the other slot still holds the previous reserved index, which
+ * no index handed out after the torn write could be below.
+ * </p>
+ * <p>
+ * The store holds an exclusive lock on the file until it is closed, so two stores, in this or another process,
+ * cannot hand out indexes for the same key.
+ * </p>
+ */
+public class MappedFileLMSStateStore
+    implements LMSStateStore
+{
+    private static final int SLOT_SIZE = 16;
+
+    private final RandomAccessFile file;
+    private final FileLock lock;
+    private final MappedByteBuffer buffer;
+
+    private long reservedIndex;
+    private int nextSlot;
+
+    /**
+     * Open, or create, a state file.
+     *
+     * @param stateFile the file holding the state.
+     * @throws IOException if the file cannot be mapped, is locked by another store, or exists but holds no
+     * valid state.
+     */
+    public MappedFileLMSStateStore(File stateFile)
+        throws IOException
+    {
+        this.file = new RandomAccessFile(stateFile, "rw");
+
+        try
+        {
+            try
+            {
+                this.lock = file.getChannel().tryLock();
+            }
+            catch (OverlappingFileLockException e)
+            {
+                throw new IOException("LMS state file already in use: " + stateFile);
+            }
+
+            if (lock == null)
+            {
+                throw new IOException("LMS state file already in use: " + stateFile);
+            }
+
+            boolean isNew = file.length() == 0;
+
+            this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+
+            long slot0 = readSlot(0);
+            long slot1 = readSlot(1);
+
+            if (slot0 < 0 && slot1 < 0)
+            {
+                if (!isNew)
+                {
+                    throw new IOException("no valid reserved index in LMS state file");
+                }
+                // a new file must hold valid state before it is used, or a crash before the first update
+                // would leave a file that cannot be opened again.
+                this.reservedIndex = 0;
+                writeSlot(0, 0);
+                this.nextSlot = 1;
+            }
+            else if (slot0 >= slot1)
+            {
+                this.reservedIndex = slot0;
+                this.nextSlot = 1;
+            }
+            else
+            {
+                this.reservedIndex = slot1;
+                this.nextSlot = 0;
+            }
+        }
+        catch (IOException e)
+        {
+            file.close();
+            throw e;
+        }
+    }
+
+    public synchronized long getReservedIndex()
+    {
+        return reservedIndex;
+    }
+
+    public synchronized void setReservedIndex(long index)
+        throws IOException
+    {
+        if (index < reservedIndex)
+        {
+            throw new IllegalArgumentException("reserved index cannot move backwards");
+        }
+
+        writeSlot(nextSlot, index);
+
+        reservedIndex = index;
+        nextSlot ^= 1;
+    }
+
+    /**
+     * Release the lock on the state file and close it.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public synchronized void close()
+        throws IOException
+    {
+        try
+        {
+            if (lock.isValid())
+            {
+                lock.release();
+            }
+        }
+        finally
+        {
+            file.close();
+        }
+    }
+
+    // write index to the slot and force it to the device
+    private void writeSlot(int slot, long index)
+    {
+        int off = slot * SLOT_SIZE;
+        buffer.putLong(off, index);
+        buffer.putLong(off + 8, ~index);
+        buffer.force();
+    }
+
+    // return the slot's index, or -1 if the slot does not hold a valid one
+    private long readSlot(int slot)
+    {
+        long index = buffer.getLong(slot * SLOT_SIZE);
+        long check = buffer.getLong(slot * SLOT_SIZE + 8);
+
+        if (index < 0 || check != ~index)
+        {
+            return -1;
+        }
+        return index;
+    }
+}
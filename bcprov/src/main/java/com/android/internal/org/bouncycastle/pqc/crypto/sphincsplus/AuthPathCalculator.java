@@ -0,0 +1,149 @@
+package com.android.internal.org.bouncycastle.pqc.crypto.sphincsplus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.android.internal.org.bouncycastle.util.TaskGroup;
+
+/**
+ * Calculates the FORS and hypertree authentication paths for a signature concurrently. Each node of a path is
+ * the root of a subtree which does not depend on any other, so every node is a separate job. The jobs are
+ * shared out between a number of worker tasks, largest subtrees first, and each worker has its own engine as
+ * the engines carry digest state. The nodes are written to fixed positions, so the result is the same as
+ * calculating them in sequence.
+ */
+class AuthPathCalculator
+{
+    private final SPHINCSPlusParameters parameters;
+    private final byte[] skSeed;
+    private final byte[] pkSeed;
+    private final List jobs = new ArrayList();
+
+    final byte[][][] forsAuthPaths;
+    final byte[][][] htAuthPaths;
+
+    AuthPathCalculator(SPHINCSPlusParameters parameters, SPHINCSPlusEngine engine, byte[] skSeed, byte[] pkSeed,
+                       byte[] mHash, long idx_tree, int idx_leaf)
+    {
+        this.parameters = parameters;
+        this.skSeed = skSeed;
+        this.pkSeed = pkSeed;
+        this.forsAuthPaths = new byte[engine.K][engine.A][];
+        this.htAuthPaths = new byte[engine.D][engine.H_PRIME][];
+
+        // FORS trees, addressed as in Fors.sign()
+        int[] idxs = Fors.message_to_idxs(mHash, engine.K, engine.A);
+        int t = engine.T;
+        ADRS adrs = new ADRS();
+        adrs.setType(ADRS.FORS_TREE);
+        adrs.setTreeAddress(idx_tree);
+        adrs.setKeyPairAddress(idx_leaf);
+        for (int i = 0; i < engine.K; i++)
+        {
+            int idx = idxs[i];
+
+            adrs.setType(ADRS.FORS_PRF);
+            adrs.setKeyPairAddress(idx_leaf);
+            adrs.setTreeHeight(0);
+            adrs.setTreeIndex(i * t + idx);
+            adrs.changeType(ADRS.FORS_TREE);
+
+            for (int j = 0; j < engine.A; j++)
+            {
+                int s = (idx / (1 << j)) ^ 1;
+                jobs.add(new Job(true, i * t + s * (1 << j), j, adrs, forsAuthPaths[i], j));
+            }
+        }
+
+        // hypertree layers, addressed as in HT.sign() and HT.xmss_sign()
+        for (int layer = 0; layer < engine.D; layer++)
+        {
+            if (layer > 0)
+            {
+                idx_leaf = (int)(idx_tree & ((1 << engine.H_PRIME) - 1));
+                idx_tree >>>= engine.H_PRIME;
+            }
+
+            adrs = new ADRS();
+            adrs.setLayerAddress(layer);
+            adrs.setTreeAddress(idx_tree);
+            adrs.setType(ADRS.TREE);
+
+            for (int j = 0; j < engine.H_PRIME; j++)
+            {
+                int k = (idx_leaf / (1 << j)) ^ 1;
+                jobs.add(new Job(false, k * (1 << j), j, adrs, htAuthPaths[layer], j));
+            }
+        }
+
+        Collections.sort(jobs, new Comparator()
+        {
+            public int compare(Object o1, Object o2)
+            {
+                return ((Job)o2).z - ((Job)o1).z;
+            }
+        });
+    }
+
+    void calculate(Executor executor)
+    {
+        int workers = Math.min(jobs.size(), Runtime.getRuntime().availableProcessors());
+        final AtomicInteger next = new AtomicInteger(0);
+        TaskGroup tasks = new TaskGroup(executor);
+
+        for (int w = 0; w < workers; w++)
+        {
+            tasks.execute(new Runnable()
+            {
+                public void run()
+                {
+                    SPHINCSPlusEngine engine = parameters.getEngine();
+                    engine.init(pkSeed);
+
+                    Fors fors = new Fors(engine);
+                    HT ht = new HT(engine, skSeed, pkSeed, false);
+
+                    for (int i = next.getAndIncrement(); i < jobs.size(); i = next.getAndIncrement())
+                    {
+                        Job job = (Job)jobs.get(i);
+
+                        if (job.fors)
+                        {
+                            job.out[job.outIndex] = fors.treehash(skSeed, job.s, job.z, pkSeed, job.adrs);
+                        }
+                        else
+                        {
+                            job.out[job.outIndex] = ht.treehash(skSeed, job.s, job.z, pkSeed, job.adrs);
+                        }
+                    }
+                }
+            });
+        }
+
+        tasks.await();
+    }
+
+    private static class Job
+    {
+        final boolean fors;
+        final int s;
+        final int z;
+        final ADRS adrs;
+        final byte[][] out;
+        final int outIndex;
+
+        Job(boolean fors, int s, int z, ADRS adrs, byte[][] out, int outIndex)
+        {
+            this.fors = fors;
+            this.s = s;
+            this.z = z;
+            this.adrs = new ADRS(adrs);
+            this.out = out;
+            this.outIndex = outIndex;
+        }
+    }
+}
@@ -60,6 +60,12 @@ class Fors
     }
 
     public SIG_FORS[] sign(byte[] md, byte[] skSeed, byte[] pkSeed, ADRS paramAdrs)
+    {
+        return sign(md, skSeed, pkSeed, paramAdrs, null);
+    }
+
+    // authPaths, if not null, holds the already calculated authentication path for each tree
+    SIG_FORS[] sign(byte[] md, byte[] skSeed, byte[] pkSeed, ADRS paramAdrs, byte[][][] authPaths)
     {
         ADRS adrs = new ADRS(paramAdrs);
 
@@ -81,12 +87,20 @@ class Fors
 
             adrs.changeType(ADRS.FORS_TREE);
 
-            byte[][] authPath = new byte[engine.A][];
-// compute auth path
-            for (int j = 0; j < engine.A; j++)
+            byte[][] authPath;
+            if (authPaths != null)
             {
-                int s = (idx / (1 << j)) ^ 1;
-                authPath[j] = treehash(skSeed, i * t + s * (1 << j), j, pkSeed, adrs);
+                authPath = authPaths[i];
+            }
+            else
+            {
+                authPath = new byte[engine.A][];
+// compute auth path
+                for (int j = 0; j < engine.A; j++)
+                {
+                    int s = (idx / (1 << j)) ^ 1;
+                    authPath[j] = treehash(skSeed, i * t + s * (1 << j), j, pkSeed, adrs);
+                }
             }
             sig_fors[i] = new SIG_FORS(sk, authPath);
         }
@@ -14,6 +14,15 @@ class HT
     final byte[] htPubKey;
 
     public HT(SPHINCSPlusEngine engine, byte[] skSeed, byte[] pkSeed)
+    {
+        this(engine, skSeed, pkSeed, skSeed != null);
+    }
+
+    /**
+     * Base constructor - the hypertree public key is only calculated if withPubKey is true, signing does
+     * not need it.
+     */
+    HT(SPHINCSPlusEngine engine, byte[] skSeed, byte[] pkSeed, boolean withPubKey)
     {
         this.skSeed = skSeed;
         this.pkSeed = pkSeed;
@@ -25,7 +34,7 @@ class HT
         adrs.setLayerAddress(engine.D - 1);
         adrs.setTreeAddress(0);
 
-        if (skSeed != null)
+        if (withPubKey)
         {
             htPubKey = xmss_PKgen(skSeed, pkSeed, adrs);
         }
@@ -36,6 +45,12 @@ class HT
     }
 
     byte[] sign(byte[] M, long idx_tree, int idx_leaf)
+    {
+        return sign(M, idx_tree, idx_leaf, null);
+    }
+
+    // authPaths, if not null, holds the already calculated authentication path for each layer
+    byte[] sign(byte[] M, long idx_tree, int idx_leaf, byte[][][] authPaths)
     {
         // init
         ADRS adrs = new ADRS();
@@ -43,7 +58,7 @@ class HT
        // adrs.setType(ADRS.TREE);
         adrs.setLayerAddress(0);
         adrs.setTreeAddress(idx_tree);
-        SIG_XMSS SIG_tmp = xmss_sign(M, skSeed, idx_leaf, pkSeed, adrs);
+        SIG_XMSS SIG_tmp = xmss_sign(M, skSeed, idx_leaf, pkSeed, adrs, (authPaths != null) ? authPaths[0] : null);
         SIG_XMSS[] SIG_HT = new SIG_XMSS[engine.D];
         SIG_HT[0] = SIG_tmp;
 
@@ -58,7 +73,7 @@ class HT
             idx_tree >>>= engine.H_PRIME; // most significant bits of idx_tree;
             adrs.setLayerAddress(j);
             adrs.setTreeAddress(idx_tree);
-            SIG_tmp = xmss_sign(root, skSeed, idx_leaf, pkSeed, adrs);
+            SIG_tmp = xmss_sign(root, skSeed, idx_leaf, pkSeed, adrs, (authPaths != null) ? authPaths[j] : null);
             SIG_HT[j] = SIG_tmp;
             if (j < engine.D - 1)
             {
@@ -121,20 +136,31 @@ class HT
     //    # Output: XMSS signature SIG_XMSS = (sig || AUTH)
     SIG_XMSS xmss_sign(byte[] M, byte[] skSeed, int idx, byte[] pkSeed, ADRS paramAdrs)
     {
-        byte[][] AUTH = new byte[engine.H_PRIME][];
-
-        ADRS adrs = new ADRS(paramAdrs);
+        return xmss_sign(M, skSeed, idx, pkSeed, paramAdrs, null);
+    }
 
-        adrs.setType(ADRS.TREE);
-        adrs.setLayerAddress(paramAdrs.getLayerAddress());
-        adrs.setTreeAddress(paramAdrs.getTreeAddress());
+    SIG_XMSS xmss_sign(byte[] M, byte[] skSeed, int idx, byte[] pkSeed, ADRS paramAdrs, byte[][] AUTH)
+    {
+        ADRS adrs;
 
-        // build authentication path
-        for (int j = 0; j < engine.H_PRIME; j++)
+        if (AUTH == null)
         {
-            int k = (idx / (1 << j)) ^ 1;
-            AUTH[j] = treehash(skSeed, k * (1 << j), j, pkSeed, adrs);
+            AUTH = new byte[engine.H_PRIME][];
+
+            adrs = new ADRS(paramAdrs);
+
+            adrs.setType(ADRS.TREE);
+            adrs.setLayerAddress(paramAdrs.getLayerAddress());
+            adrs.setTreeAddress(paramAdrs.getTreeAddress());
+
+            // build authentication path
+            for (int j = 0; j < engine.H_PRIME; j++)
+            {
+                int k = (idx / (1 << j)) ^ 1;
+                AUTH[j] = treehash(skSeed, k * (1 << j), j, pkSeed, adrs);
+            }
         }
+
         adrs = new ADRS(paramAdrs);
         adrs.setType(ADRS.WOTS_PK);
         adrs.setKeyPairAddress(idx);
@@ -1,6 +1,7 @@
 package com.android.internal.org.bouncycastle.pqc.crypto.sphincsplus;
 
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import com.android.internal.org.bouncycastle.crypto.CipherParameters;
 import com.android.internal.org.bouncycastle.crypto.params.ParametersWithRandom;
@@ -16,6 +17,11 @@ import com.android.internal.org.bouncycastle.util.Arrays;
  *     "https://github.com/sphincs/sphincsplus/commit/61cd2695c6f984b4f4d6ed675378ed9a486cbede"
  *     for further details.
  * </p>
+ * <p>
+ *     If constructed with an Executor, the signer calculates the authentication paths of the FORS trees
+ *     and of every hypertree layer concurrently before the hypertree signature is chained together. The
+ *     signatures produced are the same as those of the sequential signer.
+ * </p>
  */
 public class SPHINCSPlusSigner
     implements MessageSigner
@@ -25,11 +31,25 @@ public class SPHINCSPlusSigner
 
     private SecureRandom random;
 
+    private final Executor executor;
+
     /**
      * Base constructor.
      */
     public SPHINCSPlusSigner()
     {
+        this(null);
+    }
+
+    /**
+     * Create a signer that calculates the subtrees making up a signature's authentication paths using tasks
+     * run on the passed in executor.
+     *
+     * @param executor the executor to run the subtree tasks on, null to calculate them sequentially.
+     */
+    public SPHINCSPlusSigner(Executor executor)
+    {
+        this.executor = executor;
     }
 
     public void init(boolean forSigning, CipherParameters param)
@@ -81,12 +101,26 @@ public class SPHINCSPlusSigner
         byte[] mHash = idxDigest.digest;
         long idx_tree = idxDigest.idx_tree;
         int idx_leaf = idxDigest.idx_leaf;
+
+        byte[][][] forsAuthPaths = null;
+        byte[][][] htAuthPaths = null;
+        if (executor != null)
+        {
+            AuthPathCalculator authPaths = new AuthPathCalculator(privKey.getParameters(), engine,
+                privKey.sk.seed, privKey.pk.seed, mHash, idx_tree, idx_leaf);
+
+            authPaths.calculate(executor);
+
+            forsAuthPaths = authPaths.forsAuthPaths;
+            htAuthPaths = authPaths.htAuthPaths;
+        }
+
         // FORS sign
         ADRS adrs = new ADRS();
         adrs.setType(ADRS.FORS_TREE);
         adrs.setTreeAddress(idx_tree);
         adrs.setKeyPairAddress(idx_leaf);
-        SIG_FORS[] sig_fors = fors.sign(mHash, privKey.sk.seed, privKey.pk.seed, adrs);
+        SIG_FORS[] sig_fors = fors.sign(mHash, privKey.sk.seed, privKey.pk.seed, adrs, forsAuthPaths);
         // get FORS public key - spec shows M?
         adrs = new ADRS();
         adrs.setType(ADRS.FORS_TREE);
@@ -98,8 +132,8 @@ public class SPHINCSPlusSigner
         ADRS treeAdrs = new ADRS();
         treeAdrs.setType(ADRS.TREE);
 
-        HT ht = new HT(engine, privKey.getSeed(), privKey.getPublicSeed());
-        byte[] SIG_HT = ht.sign(PK_FORS, idx_tree, idx_leaf);
+        HT ht = new HT(engine, privKey.getSeed(), privKey.getPublicSeed(), false);
+        byte[] SIG_HT = ht.sign(PK_FORS, idx_tree, idx_leaf, htAuthPaths);
 
         byte[][] sigComponents = new byte[sig_fors.length + 2][];
         sigComponents[0] = R;
@@ -0,0 +1,136 @@
+package com.android.internal.org.bouncycastle.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A group of tasks run on an Executor, with a single point to wait for them all to finish.
+ * <p>
+ * await() returns once every task started so far has finished, and then rethrows the first Throwable thrown
+ * by any of them, so a failure in a task is seen by the thread which started it. A group can be used again
+ * once await() has returned.
+ * </p>
+ * <p>
+ * await() must not be called from one of the executor's own threads - with a bounded pool the waiting thread
+ * may be holding the thread the tasks it is waiting for need to run.
+ * </p>
+ */
+public class TaskGroup
+{
+    private final Executor executor;
+
+    private int running = 0;
+    private Throwable failure = null;
+
+    /**
+     * Create a group whose tasks run on the passed in executor.
+     *
+     * @param executor the executor to run the tasks on.
+     */
+    public TaskGroup(Executor executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Start a task.
+     *
+     * @param task the task to run.
+     */
+    public void execute(final Runnable task)
+    {
+        synchronized (this)
+        {
+            ++running;
+        }
+
+        try
+        {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    Throwable thrown = null;
+                    try
+                    {
+                        task.run();
+                    }
+                    catch (Throwable t)
+                    {
+                        thrown = t;
+                    }
+                    finished(thrown);
+                }
+            });
+        }
+        catch (RuntimeException e)
+        {
+            // the task was not accepted, so it will never finish.
+            finished(null);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for every task started so far to finish, then rethrow the first Throwable thrown by any of them.
+     * <p>
+     * If the calling thread is interrupted while waiting it still waits for the tasks to finish, as they may be
+     * working on the caller's data, and then throws.
+     * </p>
+     *
+     * @throws IllegalStateException if the calling thread was interrupted while waiting, in which case the
+     * thread's interrupt status is set again.
+     */
+    public void await()
+    {
+        boolean interrupted = false;
+        Throwable thrown;
+        synchronized (this)
+        {
+            while (running > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+
+            thrown = failure;
+            failure = null;
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for tasks");
+        }
+
+        if (thrown instanceof Error)
+        {
+            throw (Error)thrown;
+        }
+        if (thrown instanceof RuntimeException)
+        {
+            throw (RuntimeException)thrown;
+        }
+        if (thrown != null)
+        {
+            throw Exceptions.illegalStateException("task failed: " + thrown.getMessage(), thrown);
+        }
+    }
+
+    private synchronized void finished(Throwable thrown)
+    {
+        if (thrown != null && failure == null)
+        {
+            failure = thrown;
+        }
+        if (--running == 0)
+        {
+            notifyAll();
+        }
+    }
+}